@@ -0,0 +1,5 @@
+#!/usr/bin/env bash
+
+# Runs the class directly rather than through exec:java so arguments with spaces and stdin reach it untouched
+mvn -q compile dependency:build-classpath -Dmdep.outputFile=target/classpath.txt || exit 1
+java -cp "target/classes:$(cat target/classpath.txt)" com.vinyldns.sample.BulkApply "$@"
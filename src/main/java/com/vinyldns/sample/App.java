@@ -156,7 +156,7 @@ public class App {
         waitUntilTrue(
                 () -> {
                     VinylDNSResponse<BatchResponse> r =
-                            vinylHelper.getVinylDNSClient().getBatchChanges(batch.getId());
+                            vinylHelper.getBatchChanges(batch.getId());
                     return r.getStatusCode() != 404
                             && r.getValue() != null
                             && r.getValue().getStatus() == BatchChangeStatus.Complete;
@@ -180,7 +180,7 @@ public class App {
         waitUntilTrue(
                 () -> {
                     VinylDNSResponse<GetZoneResponse> r =
-                            vinylHelper.getVinylDNSClient().getZone(new ZoneRequest(zoneId));
+                            vinylHelper.pollZone(new ZoneRequest(zoneId));
                     return r.getStatusCode() == 200;
                 });
 
@@ -214,9 +214,7 @@ public class App {
 
     private Collection<RecordSet> listRecordSets(String zoneId, String recordNameFilter) {
         VinylDNSResponse<ListRecordSetsResponse> response =
-                vinylHelper
-                        .getVinylDNSClient()
-                        .listRecordSets(new ListRecordSetsRequest(zoneId, recordNameFilter));
+                vinylHelper.listRecordSets(new ListRecordSetsRequest(zoneId, recordNameFilter));
         if (response.getStatusCode() != 200) {
             throw new RuntimeException(
                     "Unexpected error listing record sets " + response.getMessageBody());
@@ -235,7 +233,7 @@ public class App {
         waitUntilTrue(
                 () -> {
                     VinylDNSResponse<GetZoneResponse> r =
-                            vinylHelper.getVinylDNSClient().getZone(new ZoneRequest(zoneId));
+                            vinylHelper.pollZone(new ZoneRequest(zoneId));
                     return r.getStatusCode() == 404;
                 });
     }
@@ -0,0 +1,326 @@
+package com.vinyldns.sample;
+
+import com.vinyldns.sample.helper.BatchRequestBuilder;
+import com.vinyldns.sample.helper.BatchRequestError;
+import com.vinyldns.sample.helper.BatchRequestJsonWriter;
+import com.vinyldns.sample.helper.ChangeLatencyTracker;
+import com.vinyldns.sample.helper.ChangeLineParser;
+import com.vinyldns.sample.helper.VinylDNSHelper;
+import io.vinyldns.java.model.batch.BatchChangeStatus;
+import io.vinyldns.java.model.batch.BatchResponse;
+import io.vinyldns.java.model.batch.ChangeInput;
+import io.vinyldns.java.model.batch.CreateBatchRequest;
+import io.vinyldns.java.responses.VinylDNSResponse;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Command line runner that applies a file of DNS changes as a series of batch changes.
+ *
+ * <p>Credentials and urls come from the VINYLDNS_ACCESS_KEY, VINYLDNS_SECRET_KEY and VINYLDNS_URL
+ * environment variables. See ChangeLineParser for the change file format and run with --help for
+ * the flags.
+ */
+public class BulkApply {
+    private static final long HEALTH_CHECK_INTERVAL_MILLIS = 5000L;
+    private static final String USAGE =
+            "Usage: bulk-apply.sh --owner-group-id <id> [options]\n"
+                    + "  --file <path>            change file to apply, reads stdin when omitted or -\n"
+                    + "  --chunk-size <n>         changes per batch change (default 100)\n"
+                    + "  --parallelism <n>        batch changes in flight at once (default 4)\n"
+                    + "  --rate <n>               most changes submitted per second, 0 for no limit (default 0)\n"
+                    + "  --comments <text>        comments to put on every batch change\n"
+                    + "  --poll-interval-ms <n>   how often to check on a submitted batch (default 2000)\n"
+                    + "  --timeout-seconds <n>    how long to wait for a batch to finish (default 600)\n"
+                    + "  --report <path>          where to write the per batch report, stdout when omitted\n"
+                    + "  --slow-ms <n>            report changes slower than this from build to complete (default 60000)\n"
+                    + "  --dry-run                print the batch requests as JSON instead of submitting them\n";
+
+    private final VinylDNSHelper vinylHelper;
+    private final BulkApplyOptions options;
+    private final AtomicInteger changesSubmitted = new AtomicInteger();
+    private final AtomicInteger changesFinished = new AtomicInteger();
+    private final AtomicInteger batchesInFlight = new AtomicInteger();
+
+    private BulkApply(VinylDNSHelper vinylHelper, BulkApplyOptions options) {
+        this.vinylHelper = vinylHelper;
+        this.options = options;
+    }
+
+    public static void main(String[] args) {
+        BulkApplyOptions options;
+        try {
+            options = BulkApplyOptions.parse(args);
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+        if (options.help) {
+            System.out.print(USAGE);
+            return;
+        }
+
+        List<ChangeInput> changes;
+        try {
+            changes = readChanges(options.file);
+        } catch (IllegalArgumentException ex) {
+            System.err.println("Invalid change file: " + ex.getMessage());
+            System.exit(2);
+            return;
+        } catch (IOException ex) {
+            System.err.println("Unable to read the change file: " + ex.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        try {
+            List<List<ChangeInput>> chunks = chunk(changes, options.chunkSize);
+            System.err.println("Read " + changes.size() + " changes, " + chunks.size() + " batch changes to apply");
+
+            if (options.dryRun) {
+                printRequests(chunks, options);
+                return;
+            }
+
+            VinylDNSHelper vinylHelper = new VinylDNSHelper();
+            vinylHelper.getEndpointPool().startHealthChecks(HEALTH_CHECK_INTERVAL_MILLIS);
+            vinylHelper.setLatencyTracker(new ChangeLatencyTracker(options.slowMillis));
+            List<Outcome> outcomes = new BulkApply(vinylHelper, options).run(chunks, changes.size());
+            writeReport(outcomes, options.report);
+            System.err.print(vinylHelper.getLatencyTracker().report());
+
+            for (Outcome outcome : outcomes) {
+                if (!outcome.status.equals(BatchChangeStatus.Complete.name())) {
+                    System.exit(1);
+                }
+            }
+        } catch (Exception ex) {
+            System.err.println("\r\n!!! ENCOUNTERED ERROR !!!");
+            ex.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private List<Outcome> run(List<List<ChangeInput>> chunks, int totalChanges) throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(options.parallelism);
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor();
+        RateLimiter rateLimiter = new RateLimiter(options.rate);
+        long start = System.nanoTime();
+        AtomicLong lastSubmitted = new AtomicLong();
+
+        progress.scheduleAtFixedRate(
+                () -> {
+                    long submitted = changesSubmitted.get();
+                    System.err.printf(
+                            "submitted %d/%d changes (%d/s), finished %d, %d batch changes in flight%n",
+                            submitted, totalChanges, submitted - lastSubmitted.getAndSet(submitted),
+                            changesFinished.get(), batchesInFlight.get());
+                },
+                1, 1, TimeUnit.SECONDS);
+
+        try {
+            List<Future<Outcome>> futures = new ArrayList<>();
+            for (int i = 0; i < chunks.size(); i++) {
+                int index = i;
+                futures.add(workers.submit(() -> apply(index, chunks.get(index), rateLimiter)));
+            }
+
+            List<Outcome> outcomes = new ArrayList<>();
+            for (Future<Outcome> future : futures) {
+                outcomes.add(future.get());
+            }
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.err.printf("Applied %d changes in %.1f seconds (%.1f changes/s)%n",
+                    totalChanges, seconds, totalChanges / Math.max(seconds, 0.001));
+            return outcomes;
+        } finally {
+            progress.shutdownNow();
+            workers.shutdownNow();
+        }
+    }
+
+    private Outcome apply(int index, List<ChangeInput> changes, RateLimiter rateLimiter) throws InterruptedException {
+        // built before waiting on the rate limit, so the latency report includes that wait
+        CreateBatchRequest request = buildRequest(changes, options, vinylHelper.getLatencyTracker());
+        rateLimiter.acquire(changes.size());
+        long start = System.currentTimeMillis();
+
+        String batchId = null;
+        batchesInFlight.incrementAndGet();
+        try {
+            BatchResponse submitted;
+            try {
+                submitted = vinylHelper.submitBatchRequest(request);
+            } catch (BatchRequestError ex) {
+                return new Outcome(index, null, "Rejected", changes.size(), System.currentTimeMillis() - start,
+                        ex.getMessage());
+            }
+            batchId = submitted.getId();
+            changesSubmitted.addAndGet(changes.size());
+
+            String status = waitForBatch(batchId);
+            if ("TimedOut".equals(status)) {
+                forget(batchId);
+            }
+            return new Outcome(index, batchId, status, changes.size(), System.currentTimeMillis() - start, "");
+        } catch (RuntimeException ex) {
+            // one bad batch must not take the rest of the run down with it
+            forget(batchId);
+            return new Outcome(index, batchId, "Error", changes.size(), System.currentTimeMillis() - start,
+                    ex.toString());
+        } finally {
+            changesFinished.addAndGet(changes.size());
+            batchesInFlight.decrementAndGet();
+        }
+    }
+
+    private void forget(String batchId) {
+        ChangeLatencyTracker tracker = vinylHelper.getLatencyTracker();
+        if (tracker != null && batchId != null) {
+            tracker.forget(batchId);
+        }
+    }
+
+    private String waitForBatch(String batchId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(options.timeoutSeconds);
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                VinylDNSResponse<BatchResponse> response = vinylHelper.getBatchChanges(batchId);
+                if (response.getStatusCode() == 200 && response.getValue() != null) {
+                    BatchChangeStatus status = response.getValue().getStatus();
+                    if (VinylDNSHelper.isTerminal(status)) {
+                        return status.name();
+                    }
+                }
+            } catch (RuntimeException ex) {
+                // the batch was accepted, so keep checking on it until the timeout
+                System.err.println("Unable to check on batch change " + batchId + ": " + ex);
+            }
+            Thread.sleep(options.pollIntervalMillis);
+        }
+        return "TimedOut";
+    }
+
+    private static CreateBatchRequest buildRequest(List<ChangeInput> changes, BulkApplyOptions options,
+                                                   ChangeLatencyTracker latencyTracker) {
+        BatchRequestBuilder builder = new BatchRequestBuilder(options.ownerGroupId)
+                .withChanges(changes)
+                .withLatencyTracker(latencyTracker);
+        if (options.comments != null) {
+            builder.withComments(options.comments);
+        }
+        return builder.build();
+    }
+
+    private static List<ChangeInput> readChanges(String file) throws IOException {
+        if (file == null || file.equals("-")) {
+            return ChangeLineParser.parse(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            return ChangeLineParser.parse(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static List<List<ChangeInput>> chunk(List<ChangeInput> changes, int chunkSize) {
+        List<List<ChangeInput>> chunks = new ArrayList<>();
+        for (int i = 0; i < changes.size(); i += chunkSize) {
+            chunks.add(changes.subList(i, Math.min(i + chunkSize, changes.size())));
+        }
+        return chunks;
+    }
+
+    private static void printRequests(List<List<ChangeInput>> chunks, BulkApplyOptions options) throws IOException {
+        for (List<ChangeInput> changes : chunks) {
+            BatchRequestJsonWriter.write(buildRequest(changes, options, null), System.out);
+            System.out.println();
+        }
+    }
+
+    private static void writeReport(List<Outcome> outcomes, String report) throws IOException {
+        PrintWriter out = report == null
+                ? new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : new PrintWriter(new OutputStreamWriter(new FileOutputStream(report), StandardCharsets.UTF_8));
+        try {
+            out.println("batch\tbatchId\tstatus\tchanges\telapsedMs\tmessage");
+            for (Outcome outcome : outcomes) {
+                out.println(outcome.index + "\t" + (outcome.batchId == null ? "-" : outcome.batchId) + "\t"
+                        + outcome.status + "\t" + outcome.changes + "\t" + outcome.elapsedMillis + "\t"
+                        + outcome.message.replaceAll("\\s+", " "));
+            }
+        } finally {
+            if (report == null) {
+                out.flush();
+            } else {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * The result of applying a single chunk of changes
+     */
+    private static class Outcome {
+        private final int index;
+        private final String batchId;
+        private final String status;
+        private final int changes;
+        private final long elapsedMillis;
+        private final String message;
+
+        private Outcome(int index, String batchId, String status, int changes, long elapsedMillis, String message) {
+            this.index = index;
+            this.batchId = batchId;
+            this.status = status;
+            this.changes = changes;
+            this.elapsedMillis = elapsedMillis;
+            this.message = message == null ? "" : message;
+        }
+    }
+
+    /**
+     * Spaces out submissions so that no more than the given number of changes go out per second
+     */
+    private static class RateLimiter {
+        private final double nanosPerChange;
+        private long nextFree = System.nanoTime();
+
+        private RateLimiter(int changesPerSecond) {
+            this.nanosPerChange = changesPerSecond <= 0 ? 0 : 1e9 / changesPerSecond;
+        }
+
+        private void acquire(int changes) throws InterruptedException {
+            if (nanosPerChange == 0) {
+                return;
+            }
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long slot = Math.max(nextFree, now);
+                nextFree = slot + (long) (nanosPerChange * changes);
+                waitNanos = slot - now;
+            }
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.vinyldns.sample;
+
+/**
+ * The command line flags of BulkApply
+ */
+class BulkApplyOptions {
+    String ownerGroupId;
+    String file;
+    int chunkSize = 100;
+    int parallelism = 4;
+    int rate = 0;
+    String comments;
+    long pollIntervalMillis = 2000L;
+    long timeoutSeconds = 600L;
+    long slowMillis = 60000L;
+    String report;
+    boolean dryRun;
+    boolean help;
+
+    /**
+     * Parses the flags
+     *
+     * @param args The command line arguments
+     * @return The options, defaults for any flag that was not given
+     * @throws IllegalArgumentException if a flag is unknown, is missing its value or has a bad value
+     */
+    static BulkApplyOptions parse(String[] args) {
+        BulkApplyOptions options = new BulkApplyOptions();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--help":
+                    options.help = true;
+                    return options;
+                case "--dry-run":
+                    options.dryRun = true;
+                    break;
+                case "--owner-group-id":
+                    options.ownerGroupId = value(args, ++i, arg);
+                    break;
+                case "--file":
+                    options.file = value(args, ++i, arg);
+                    break;
+                case "--chunk-size":
+                    options.chunkSize = positive(value(args, ++i, arg), arg);
+                    break;
+                case "--parallelism":
+                    options.parallelism = positive(value(args, ++i, arg), arg);
+                    break;
+                case "--rate":
+                    options.rate = notNegative(value(args, ++i, arg), arg);
+                    break;
+                case "--comments":
+                    options.comments = value(args, ++i, arg);
+                    break;
+                case "--poll-interval-ms":
+                    options.pollIntervalMillis = positive(value(args, ++i, arg), arg);
+                    break;
+                case "--timeout-seconds":
+                    options.timeoutSeconds = positive(value(args, ++i, arg), arg);
+                    break;
+                case "--slow-ms":
+                    options.slowMillis = positive(value(args, ++i, arg), arg);
+                    break;
+                case "--report":
+                    options.report = value(args, ++i, arg);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (options.ownerGroupId == null && !options.dryRun) {
+            throw new IllegalArgumentException("--owner-group-id is required");
+        }
+        return options;
+    }
+
+    private static String value(String[] args, int i, String flag) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException(flag + " needs a value");
+        }
+        return args[i];
+    }
+
+    private static int number(String value, String flag) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(flag + " must be a number but got '" + value + "'");
+        }
+    }
+
+    private static int positive(String value, String flag) {
+        int n = number(value, flag);
+        if (n <= 0) {
+            throw new IllegalArgumentException(flag + " must be greater than zero");
+        }
+        return n;
+    }
+
+    private static int notNegative(String value, String flag) {
+        int n = number(value, flag);
+        if (n < 0) {
+            throw new IllegalArgumentException(flag + " must not be negative");
+        }
+        return n;
+    }
+}
@@ -0,0 +1,365 @@
+package com.vinyldns.sample.helper;
+
+import io.vinyldns.java.model.batch.BatchResponse;
+import io.vinyldns.java.model.batch.ChangeInput;
+import io.vinyldns.java.model.batch.CreateBatchRequest;
+import io.vinyldns.java.model.batch.SingleChange;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects single DNS changes from many threads and submits them together as batch changes.
+ *
+ * <p>A batch is sent as soon as maxChanges changes are waiting, or lingerMillis after the first
+ * change of a batch arrived, whichever comes first. Adding a change never blocks; the caller gets
+ * a future that completes once the batch change holding its change is Complete, Failed or
+ * PartialFailure, with the batch id and the change as VinylDNS last reported it.
+ *
+ * <p>VinylDNS validates a batch change as a whole, so when a batch is rejected it is split in half
+ * and each half is sent again until the changes at fault are found. Only the futures of those
+ * changes complete exceptionally with the BatchRequestError.
+ *
+ * <p>With a ChangeLatencyTracker set on the helper, every change is timed once from the time it
+ * was added, however often it had to be sent, so the time spent waiting for a batch to fill up is
+ * included. A batch is timed from its oldest change.
+ */
+public class BatchCoalescer implements AutoCloseable {
+    private static final long DEFAULT_POLL_INTERVAL_MILLIS = 2000L;
+    private static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final VinylDNSHelper vinylHelper;
+    private final String ownerGroupId;
+    private final int maxChanges;
+    private final long lingerMillis;
+    private final long pollIntervalMillis;
+    private final long timeoutMillis;
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Set<CompletableFuture<CoalescedChange>> unfinished = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final ScheduledThreadPoolExecutor sender;
+
+    /**
+     * Create a new coalescer that checks on batch changes every 2 seconds for up to 10 minutes
+     *
+     * @param vinylHelper   The helper used to submit the batch changes
+     * @param ownerGroupId  The owner group id set on every batch change
+     * @param maxChanges    The most changes to put in a single batch change
+     * @param lingerMillis  How long to wait for more changes before sending a batch that is not full
+     * @param senderThreads How many batch changes may be submitted or checked on at once
+     */
+    public BatchCoalescer(VinylDNSHelper vinylHelper, String ownerGroupId, int maxChanges, long lingerMillis,
+                          int senderThreads) {
+        this(vinylHelper, ownerGroupId, maxChanges, lingerMillis, senderThreads, DEFAULT_POLL_INTERVAL_MILLIS,
+                DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Create a new coalescer
+     *
+     * @param vinylHelper        The helper used to submit the batch changes
+     * @param ownerGroupId       The owner group id set on every batch change
+     * @param maxChanges         The most changes to put in a single batch change
+     * @param lingerMillis       How long to wait for more changes before sending a batch that is not full
+     * @param senderThreads      How many batch changes may be submitted or checked on at once
+     * @param pollIntervalMillis How often to check on a submitted batch change
+     * @param timeoutMillis      How long to wait for a submitted batch change to finish
+     */
+    public BatchCoalescer(VinylDNSHelper vinylHelper, String ownerGroupId, int maxChanges, long lingerMillis,
+                          int senderThreads, long pollIntervalMillis, long timeoutMillis) {
+        if (maxChanges <= 0 || lingerMillis < 0 || senderThreads <= 0 || pollIntervalMillis <= 0
+                || timeoutMillis <= 0) {
+            throw new IllegalArgumentException(
+                    "maxChanges, senderThreads, pollIntervalMillis and timeoutMillis must be positive, "
+                            + "lingerMillis not negative");
+        }
+        this.vinylHelper = vinylHelper;
+        this.ownerGroupId = ownerGroupId;
+        this.maxChanges = maxChanges;
+        this.lingerMillis = lingerMillis;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.sender = new ScheduledThreadPoolExecutor(senderThreads);
+        // close waits for every change to finish first, waiting linger flushes would only hold it up
+        this.sender.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Queues a change to be submitted with the next batch change
+     *
+     * @param change The change to make
+     * @return A future that completes once the batch change is finished, check the status of the
+     * change as it may have Failed; completes exceptionally if the change was rejected, could not be
+     * sent or did not finish in time
+     */
+    public CompletableFuture<CoalescedChange> add(ChangeInput change) {
+        if (closed.get()) {
+            throw new IllegalStateException("BatchCoalescer is closed");
+        }
+
+        Pending pending = new Pending(change);
+        unfinished.add(pending.result);
+        pending.result.whenComplete((result, ex) -> unfinished.remove(pending.result));
+        queue.offer(pending);
+        int size = queued.incrementAndGet();
+
+        // close() may have run its final flush between our check and the offer, if so take the change back
+        if (closed.get() && giveBack(pending)) {
+            throw new IllegalStateException("BatchCoalescer is closed");
+        }
+
+        try {
+            if (size % maxChanges == 0) {
+                // only the change that fills a batch triggers a send, so a busy queue does not spawn
+                // extra flushes that would send the stragglers as tiny batches
+                sender.execute(this::flush);
+            } else if (size == 1) {
+                // first change of a new batch, make sure it does not wait longer than the linger time
+                sender.schedule(this::flush, lingerMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (RejectedExecutionException ex) {
+            // closed while we were adding, unless the final flush already took our change give it back
+            if (giveBack(pending)) {
+                throw new IllegalStateException("BatchCoalescer is closed");
+            }
+        }
+        return pending.result;
+    }
+
+    /**
+     * Sends whatever is waiting right away, without waiting for the linger time
+     */
+    public void flushNow() {
+        sender.execute(this::flush);
+    }
+
+    /**
+     * Sends everything that is waiting and waits until every change added so far has finished.
+     * Changes can not be added afterwards.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sender.submit(this::flush).get();
+            // batch changes are checked on from the sender, so it has to keep running until they finish
+            CompletableFuture.allOf(unfinished.toArray(new CompletableFuture<?>[0]))
+                    .handle((result, ex) -> null)
+                    .get();
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Unable to send the remaining changes", ex.getCause());
+        } finally {
+            sender.shutdown();
+            sender.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private boolean giveBack(Pending pending) {
+        if (queue.remove(pending)) {
+            queued.decrementAndGet();
+            unfinished.remove(pending.result);
+            return true;
+        }
+        return false;
+    }
+
+    private void flush() {
+        List<Pending> batch = drain();
+        while (!batch.isEmpty()) {
+            submit(batch);
+
+            // whatever is left over belongs to the next batch; once closed we send it all right away
+            int remaining = queued.get();
+            if (remaining > 0 && remaining < maxChanges && !closed.get()) {
+                try {
+                    sender.schedule(this::flush, lingerMillis, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (RejectedExecutionException ex) {
+                    // closed in the meantime, keep sending
+                }
+            }
+            batch = drain();
+        }
+    }
+
+    private void submit(List<Pending> batch) {
+        List<ChangeInput> changes = new ArrayList<>(batch.size());
+        long builtAt = Long.MAX_VALUE;
+        for (Pending pending : batch) {
+            changes.add(pending.change);
+            builtAt = Math.min(builtAt, pending.addedAt);
+        }
+        CreateBatchRequest request = new BatchRequestBuilder(ownerGroupId).withChanges(changes).build();
+
+        // the tracker is told here rather than by the helper so a split batch is only counted once
+        ChangeLatencyTracker tracker = vinylHelper.getLatencyTracker();
+        if (tracker != null) {
+            tracker.built(request, builtAt);
+            tracker.submitted(request);
+        }
+
+        BatchResponse response;
+        try {
+            response = vinylHelper.submitBatchRequestUntracked(request);
+        } catch (BatchRequestError ex) {
+            if (batch.size() > 1 && isRejection(ex)) {
+                if (tracker != null) {
+                    tracker.retried(request);
+                }
+                // find the changes at fault so the rest of the callers still get their changes made
+                int half = batch.size() / 2;
+                submit(batch.subList(0, half));
+                submit(batch.subList(half, batch.size()));
+            } else {
+                if (tracker != null) {
+                    tracker.rejected(request);
+                }
+                failAll(batch, ex);
+            }
+            return;
+        } catch (RuntimeException ex) {
+            if (tracker != null) {
+                tracker.rejected(request);
+            }
+            failAll(batch, ex);
+            return;
+        }
+
+        if (tracker != null) {
+            tracker.accepted(request, response);
+        }
+        Accepted accepted = new Accepted(response.getId(), new ArrayList<>(batch),
+                System.currentTimeMillis() + timeoutMillis);
+        schedulePoll(accepted);
+    }
+
+    private void schedulePoll(Accepted accepted) {
+        try {
+            sender.schedule(() -> poll(accepted), pollIntervalMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            failAll(accepted.batch, new IllegalStateException("BatchCoalescer is closed"));
+        }
+    }
+
+    private void poll(Accepted accepted) {
+        BatchResponse response = null;
+        try {
+            response = vinylHelper.getBatchChange(accepted.batchId);
+        } catch (RuntimeException ex) {
+            // the batch was accepted, so keep checking on it until the timeout
+        }
+
+        if (response != null && VinylDNSHelper.isTerminal(response.getStatus())) {
+            complete(accepted, response);
+        } else if (System.currentTimeMillis() >= accepted.deadline) {
+            ChangeLatencyTracker tracker = vinylHelper.getLatencyTracker();
+            if (tracker != null) {
+                tracker.forget(accepted.batchId);
+            }
+            failAll(accepted.batch, new TimeoutException("Batch change " + accepted.batchId + " did not finish in "
+                    + timeoutMillis + "ms"));
+        } else {
+            schedulePoll(accepted);
+        }
+    }
+
+    private static void complete(Accepted accepted, BatchResponse response) {
+        List<SingleChange> outcomes = response.getChanges();
+        if (outcomes == null || outcomes.size() != accepted.batch.size()) {
+            failAll(accepted.batch, new IllegalStateException("Batch change " + accepted.batchId + " has "
+                    + (outcomes == null ? 0 : outcomes.size()) + " changes but " + accepted.batch.size()
+                    + " were sent"));
+            return;
+        }
+        // the changes in the response are in the order they were sent
+        for (int i = 0; i < accepted.batch.size(); i++) {
+            accepted.batch.get(i).result.complete(new CoalescedChange(accepted.batchId, outcomes.get(i)));
+        }
+    }
+
+    /**
+     * A rejection is about the changes themselves, resending fewer of them can succeed. Other
+     * failures such as bad credentials, throttling or server errors would fail every half too.
+     */
+    private static boolean isRejection(BatchRequestError ex) {
+        int status = ex.getStatusCode();
+        return status >= 400 && status < 500 && status != 401 && status != 408 && status != 429;
+    }
+
+    private static void failAll(List<Pending> batch, Throwable ex) {
+        for (Pending pending : batch) {
+            pending.result.completeExceptionally(ex);
+        }
+    }
+
+    private List<Pending> drain() {
+        List<Pending> batch = new ArrayList<>();
+        Pending pending;
+        while (batch.size() < maxChanges && (pending = queue.poll()) != null) {
+            queued.decrementAndGet();
+            batch.add(pending);
+        }
+        return batch;
+    }
+
+    /**
+     * A change made through the coalescer and the batch change it was made in
+     */
+    public static class CoalescedChange {
+        private final String batchId;
+        private final SingleChange change;
+
+        private CoalescedChange(String batchId, SingleChange change) {
+            this.batchId = batchId;
+            this.change = change;
+        }
+
+        public String getBatchId() {
+            return batchId;
+        }
+
+        /**
+         * Returns the change as VinylDNS reported it once its batch change finished
+         */
+        public SingleChange getChange() {
+            return change;
+        }
+    }
+
+    private static class Pending {
+        private final ChangeInput change;
+        private final long addedAt = System.currentTimeMillis();
+        private final CompletableFuture<CoalescedChange> result = new CompletableFuture<>();
+
+        private Pending(ChangeInput change) {
+            this.change = change;
+        }
+    }
+
+    private static class Accepted {
+        private final String batchId;
+        private final List<Pending> batch;
+        private final long deadline;
+
+        private Accepted(String batchId, List<Pending> batch, long deadline) {
+            this.batchId = batchId;
+            this.batch = batch;
+            this.deadline = deadline;
+        }
+    }
+}
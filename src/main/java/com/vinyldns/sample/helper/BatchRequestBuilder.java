@@ -10,6 +10,7 @@ public class BatchRequestBuilder {
     private final List<ChangeInput> changes;
     private final String ownerGroupId;
     private String comments;
+    private ChangeLatencyTracker latencyTracker;
 
     public BatchRequestBuilder(String ownerGroupId) {
         this.ownerGroupId = ownerGroupId;
@@ -46,11 +47,21 @@ public class BatchRequestBuilder {
         return this;
     }
 
+    public BatchRequestBuilder withChanges(List<ChangeInput> changesToAdd) {
+        changes.addAll(changesToAdd);
+        return this;
+    }
+
     public BatchRequestBuilder withComments(String comments) {
         this.comments = comments;
         return this;
     }
 
+    public BatchRequestBuilder withLatencyTracker(ChangeLatencyTracker latencyTracker) {
+        this.latencyTracker = latencyTracker;
+        return this;
+    }
+
     public CreateBatchRequest build() {
         CreateBatchRequest request = new CreateBatchRequest(changes);
         request.setOwnerGroupId(ownerGroupId);
@@ -58,6 +69,9 @@ public class BatchRequestBuilder {
         if (comments != null) {
             request.setComments(comments);
         }
+        if (latencyTracker != null) {
+            latencyTracker.built(request);
+        }
         return request;
     }
 }
@@ -1,7 +1,21 @@
 package com.vinyldns.sample.helper;
 
 public class BatchRequestError extends Exception {
+    private final int statusCode;
+
     public BatchRequestError(String message) {
+        this(message, 0);
+    }
+
+    public BatchRequestError(String message, int statusCode) {
         super(message);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * Returns the http status VinylDNS answered with, below 100 if there was no http response
+     */
+    public int getStatusCode() {
+        return statusCode;
     }
 }
@@ -0,0 +1,105 @@
+package com.vinyldns.sample.helper;
+
+import com.google.gson.stream.JsonWriter;
+import io.vinyldns.java.model.batch.AddChangeInput;
+import io.vinyldns.java.model.batch.ChangeInput;
+import io.vinyldns.java.model.batch.CreateBatchRequest;
+import io.vinyldns.java.model.batch.DeleteRecordSetChangeInput;
+import io.vinyldns.java.model.record.data.AAAAData;
+import io.vinyldns.java.model.record.data.AData;
+import io.vinyldns.java.model.record.data.CNAMEData;
+import io.vinyldns.java.model.record.data.PTRData;
+import io.vinyldns.java.model.record.data.RecordData;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a CreateBatchRequest as JSON straight to a stream, one change at a time.
+ *
+ * <p>Unlike the reflection based serialization in the client, the payload is never held in
+ * memory as a String, which matters for batches with thousands of changes.
+ */
+public final class BatchRequestJsonWriter {
+    private static final int BUFFER_SIZE = 8192;
+
+    private BatchRequestJsonWriter() {
+    }
+
+    /**
+     * Writes the request as UTF-8 JSON to the output stream. The stream is flushed but not closed.
+     *
+     * @param request The batch request to write
+     * @param out     The stream to write to
+     * @throws IOException if the stream can not be written to
+     */
+    public static void write(CreateBatchRequest request, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        write(request, writer);
+    }
+
+    /**
+     * Writes the request as JSON to the writer. The writer is flushed but not closed.
+     *
+     * @param request The batch request to write
+     * @param writer  The writer to write to
+     * @throws IOException if the writer can not be written to
+     */
+    public static void write(CreateBatchRequest request, Writer writer) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject();
+        if (request.getComments() != null) {
+            json.name("comments").value(request.getComments());
+        }
+        if (request.getOwnerGroupId() != null) {
+            json.name("ownerGroupId").value(request.getOwnerGroupId());
+        }
+        json.name("changes").beginArray();
+        for (ChangeInput change : request.getChanges()) {
+            writeChange(json, change);
+        }
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    private static void writeChange(JsonWriter json, ChangeInput change) throws IOException {
+        json.beginObject();
+        if (change instanceof AddChangeInput) {
+            AddChangeInput add = (AddChangeInput) change;
+            json.name("changeType").value("Add");
+            json.name("inputName").value(add.getInputName());
+            json.name("type").value(add.getType().name());
+            json.name("ttl").value(add.getTtl());
+            json.name("record");
+            writeRecord(json, add.getRecord());
+        } else if (change instanceof DeleteRecordSetChangeInput) {
+            json.name("changeType").value("DeleteRecordSet");
+            json.name("inputName").value(change.getInputName());
+            json.name("type").value(change.getType().name());
+        } else {
+            throw new IllegalArgumentException("Unsupported change input " + change.getClass().getName());
+        }
+        json.endObject();
+    }
+
+    private static void writeRecord(JsonWriter json, RecordData record) throws IOException {
+        json.beginObject();
+        if (record instanceof AData) {
+            json.name("address").value(((AData) record).getAddress());
+        } else if (record instanceof AAAAData) {
+            json.name("address").value(((AAAAData) record).getAddress());
+        } else if (record instanceof PTRData) {
+            json.name("ptrdname").value(((PTRData) record).getPtrdname());
+        } else if (record instanceof CNAMEData) {
+            json.name("cname").value(((CNAMEData) record).getCname());
+        } else {
+            throw new IllegalArgumentException("Unsupported record data " + record.getClass().getName());
+        }
+        json.endObject();
+    }
+}
@@ -0,0 +1,358 @@
+package com.vinyldns.sample.helper;
+
+import io.vinyldns.java.model.batch.BatchResponse;
+import io.vinyldns.java.model.batch.CreateBatchRequest;
+import io.vinyldns.java.model.batch.SingleChange;
+import io.vinyldns.java.model.batch.SingleChangeStatus;
+import io.vinyldns.java.model.record.RecordType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks how long DNS changes take from being built until their batch change is Complete.
+ *
+ * <p>Every change in a batch change shares the time the request was built, submitted and
+ * accepted, so timestamps are kept once per batch. Once getBatchChanges on the VinylDNSHelper
+ * returns the batch in a final status, each change is recorded by its own status, zone and record
+ * type as VinylDNS reports them. The latency includes up to one polling interval.
+ *
+ * <p>Batch changes that are never seen in a final status are dropped after maxTrackedMillis, and
+ * at most MAX_IN_FLIGHT are tracked at once, so an abandoned run does not hold on to them.
+ *
+ * <p>Latencies are kept in histograms per zone and per record type. Changes that take longer than
+ * the slow threshold are also kept in a bounded list of outliers.
+ */
+public class ChangeLatencyTracker {
+    private static final int MAX_OUTLIERS = 100;
+    private static final String UNKNOWN_ZONE = "(unknown)";
+    private static final int MAX_IN_FLIGHT = 10000;
+    private static final long DEFAULT_MAX_TRACKED_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long SWEEP_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final long slowThresholdMillis;
+    private final long maxTrackedMillis;
+    private final Map<CreateBatchRequest, Timeline> unsubmitted = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final Map<String, Timeline> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> byZone = new ConcurrentHashMap<>();
+    private final Map<RecordType, LatencyHistogram> byType = new ConcurrentHashMap<>();
+    private final LatencyHistogram buildToSubmit = new LatencyHistogram();
+    private final LatencyHistogram submitToAccept = new LatencyHistogram();
+    private final LatencyHistogram acceptToComplete = new LatencyHistogram();
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final AtomicLong failedChanges = new AtomicLong();
+    private final AtomicLong untrackedChanges = new AtomicLong();
+    private final AtomicLong lastSweep = new AtomicLong(System.currentTimeMillis());
+    private final Queue<Outlier> outliers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger outlierCount = new AtomicInteger();
+
+    /**
+     * Create a new tracker
+     *
+     * @param slowThresholdMillis Changes that take longer than this from build to complete are
+     *                            reported as outliers
+     */
+    public ChangeLatencyTracker(long slowThresholdMillis) {
+        this(slowThresholdMillis, DEFAULT_MAX_TRACKED_MILLIS);
+    }
+
+    /**
+     * Create a new tracker
+     *
+     * @param slowThresholdMillis Changes that take longer than this from build to complete are
+     *                            reported as outliers
+     * @param maxTrackedMillis    How long after acceptance a batch change is tracked before it is
+     *                            given up on
+     */
+    public ChangeLatencyTracker(long slowThresholdMillis, long maxTrackedMillis) {
+        this.slowThresholdMillis = slowThresholdMillis;
+        this.maxTrackedMillis = maxTrackedMillis;
+    }
+
+    /**
+     * Called by BatchRequestBuilder when a request is built. A built request is tracked until it is
+     * submitted, so only build requests with a tracker that will be submitted.
+     */
+    public void built(CreateBatchRequest request) {
+        built(request, System.currentTimeMillis());
+    }
+
+    /**
+     * Starts the timeline of a request at an earlier time than now, for requests whose changes
+     * were collected before the request itself was built
+     */
+    public void built(CreateBatchRequest request, long builtAtMillis) {
+        unsubmitted.put(request, new Timeline(request.getChanges().size(), builtAtMillis));
+    }
+
+    /**
+     * Called by VinylDNSHelper just before a request is sent
+     */
+    public void submitted(CreateBatchRequest request) {
+        long now = System.currentTimeMillis();
+        // requests that were not built with a tracker start their timeline here
+        Timeline timeline = unsubmitted.computeIfAbsent(request, r -> new Timeline(r.getChanges().size(), now));
+        timeline.submittedAt = now;
+    }
+
+    /**
+     * Called by VinylDNSHelper once VinylDNS accepted a request
+     */
+    public void accepted(CreateBatchRequest request, BatchResponse response) {
+        Timeline timeline = unsubmitted.remove(request);
+        if (timeline == null || response == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        timeline.acceptedAt = now;
+        sweep(now);
+        if (inFlight.size() >= MAX_IN_FLIGHT) {
+            untrackedChanges.addAndGet(timeline.changeCount);
+            return;
+        }
+        inFlight.put(response.getId(), timeline);
+    }
+
+    /**
+     * Called by VinylDNSHelper when VinylDNS rejected a request, it will never complete
+     */
+    public void rejected(CreateBatchRequest request) {
+        Timeline timeline = unsubmitted.remove(request);
+        if (timeline != null) {
+            failedChanges.addAndGet(timeline.changeCount);
+        }
+    }
+
+    /**
+     * Called instead of rejected when the changes of a rejected request are sent again in other
+     * requests, so they are not counted as failed more than once
+     */
+    public void retried(CreateBatchRequest request) {
+        unsubmitted.remove(request);
+    }
+
+    /**
+     * Called by VinylDNSHelper with every batch change it looks up; the latencies of a batch are
+     * recorded the first time it is seen in a status that will not change again
+     */
+    public void observed(BatchResponse response) {
+        if (response == null || !VinylDNSHelper.isTerminal(response.getStatus())) {
+            return;
+        }
+        Timeline timeline = inFlight.remove(response.getId());
+        if (timeline == null) {
+            return;
+        }
+        List<SingleChange> changes = response.getChanges();
+        if (changes == null || changes.isEmpty()) {
+            failedChanges.addAndGet(timeline.changeCount);
+            return;
+        }
+
+        long completedAt = System.currentTimeMillis();
+        long latency = completedAt - timeline.builtAt;
+        boolean anyComplete = false;
+        // a PartialFailure batch has both, so every change is judged by its own status
+        for (SingleChange change : changes) {
+            if (change.getStatus() != SingleChangeStatus.Complete) {
+                failedChanges.incrementAndGet();
+                continue;
+            }
+            anyComplete = true;
+            String zone = change.getZoneName() != null ? change.getZoneName() : UNKNOWN_ZONE;
+            total.record(latency);
+            histogramFor(byZone, zone).record(latency);
+            if (change.getType() != null) {
+                histogramFor(byType, change.getType()).record(latency);
+            }
+            if (latency > slowThresholdMillis) {
+                addOutlier(new Outlier(response.getId(), change.getInputName(), change.getType(), zone, latency));
+            }
+        }
+
+        if (anyComplete) {
+            buildToSubmit.record(timeline.submittedAt - timeline.builtAt);
+            submitToAccept.record(timeline.acceptedAt - timeline.submittedAt);
+            acceptToComplete.record(completedAt - timeline.acceptedAt);
+        }
+    }
+
+    /**
+     * Stops tracking a batch change that will not be looked up again, for example because waiting
+     * on it timed out. Its changes are counted as untracked.
+     */
+    public void forget(String batchId) {
+        if (batchId == null) {
+            return;
+        }
+        Timeline timeline = inFlight.remove(batchId);
+        if (timeline != null) {
+            untrackedChanges.addAndGet(timeline.changeCount);
+        }
+    }
+
+    public LatencyHistogram getTotal() {
+        return total;
+    }
+
+    public Map<String, LatencyHistogram> getByZone() {
+        return Collections.unmodifiableMap(byZone);
+    }
+
+    public Map<RecordType, LatencyHistogram> getByType() {
+        return Collections.unmodifiableMap(byType);
+    }
+
+    public long getFailedChanges() {
+        return failedChanges.get();
+    }
+
+    /**
+     * Returns how many changes were given up on before their batch change was seen in a final status
+     */
+    public long getUntrackedChanges() {
+        return untrackedChanges.get();
+    }
+
+    /**
+     * Returns how many accepted batch changes are still waiting to be seen in a final status
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Returns the most recent changes that were slower than the slow threshold, oldest first
+     */
+    public List<Outlier> getOutliers() {
+        return new ArrayList<>(outliers);
+    }
+
+    /**
+     * Returns a plain text report of the latency percentiles and slow outliers
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Change latency from build to complete (ms), ")
+                .append(failedChanges.get()).append(" changes failed or were rejected, ")
+                .append(untrackedChanges.get()).append(" were not seen to finish\n");
+        appendRow(sb, "all changes", total);
+        appendRow(sb, "  build -> submit (per batch)", buildToSubmit);
+        appendRow(sb, "  submit -> accept (per batch)", submitToAccept);
+        appendRow(sb, "  accept -> complete (per batch)", acceptToComplete);
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(byZone).entrySet()) {
+            appendRow(sb, "zone " + entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<RecordType, LatencyHistogram> entry : new TreeMap<>(byType).entrySet()) {
+            appendRow(sb, "type " + entry.getKey(), entry.getValue());
+        }
+
+        List<Outlier> slow = getOutliers();
+        if (!slow.isEmpty()) {
+            sb.append("Changes slower than ").append(slowThresholdMillis).append("ms:\n");
+            for (Outlier outlier : slow) {
+                sb.append("  ").append(outlier).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private void sweep(long now) {
+        long last = lastSweep.get();
+        // one caller a minute walks the map, the rest carry on
+        if (now - last < SWEEP_INTERVAL_MILLIS || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        for (Map.Entry<String, Timeline> entry : inFlight.entrySet()) {
+            if (now - entry.getValue().acceptedAt > maxTrackedMillis) {
+                forget(entry.getKey());
+            }
+        }
+    }
+
+    private void addOutlier(Outlier outlier) {
+        outliers.offer(outlier);
+        if (outlierCount.incrementAndGet() > MAX_OUTLIERS && outliers.poll() != null) {
+            outlierCount.decrementAndGet();
+        }
+    }
+
+    private static <K> LatencyHistogram histogramFor(Map<K, LatencyHistogram> histograms, K key) {
+        // plain get first, it does not lock on the hot path where the histogram already exists
+        LatencyHistogram histogram = histograms.get(key);
+        return histogram != null ? histogram : histograms.computeIfAbsent(key, k -> new LatencyHistogram());
+    }
+
+    private static void appendRow(StringBuilder sb, String name, LatencyHistogram histogram) {
+        sb.append(String.format("%-40s count=%d p50=%d p90=%d p99=%d max=%d%n", name, histogram.getCount(),
+                histogram.getPercentile(50), histogram.getPercentile(90), histogram.getPercentile(99),
+                histogram.getMax()));
+    }
+
+    /**
+     * A change that took longer than the slow threshold
+     */
+    public static class Outlier {
+        private final String batchId;
+        private final String inputName;
+        private final RecordType type;
+        private final String zone;
+        private final long latencyMillis;
+
+        private Outlier(String batchId, String inputName, RecordType type, String zone, long latencyMillis) {
+            this.batchId = batchId;
+            this.inputName = inputName;
+            this.type = type;
+            this.zone = zone;
+            this.latencyMillis = latencyMillis;
+        }
+
+        public String getBatchId() {
+            return batchId;
+        }
+
+        public String getInputName() {
+            return inputName;
+        }
+
+        public RecordType getType() {
+            return type;
+        }
+
+        public String getZone() {
+            return zone;
+        }
+
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        @Override
+        public String toString() {
+            return inputName + " " + type + " in " + zone + " took " + latencyMillis + "ms (batch " + batchId + ")";
+        }
+    }
+
+    private static class Timeline {
+        private final int changeCount;
+        private final long builtAt;
+        private volatile long submittedAt;
+        private volatile long acceptedAt;
+
+        private Timeline(int changeCount, long builtAt) {
+            this.changeCount = changeCount;
+            this.builtAt = builtAt;
+            this.submittedAt = builtAt;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.vinyldns.sample.helper;
+
+import io.vinyldns.java.model.batch.AddChangeInput;
+import io.vinyldns.java.model.batch.ChangeInput;
+import io.vinyldns.java.model.batch.DeleteRecordSetChangeInput;
+import io.vinyldns.java.model.record.RecordType;
+import io.vinyldns.java.model.record.data.AAAAData;
+import io.vinyldns.java.model.record.data.AData;
+import io.vinyldns.java.model.record.data.CNAMEData;
+import io.vinyldns.java.model.record.data.PTRData;
+import io.vinyldns.java.model.record.data.RecordData;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses DNS changes written one per line.
+ *
+ * <pre>
+ * # blank lines and lines starting with # are ignored
+ * add A test-1.ok. 300 192.0.2.10
+ * add PTR 192.0.2.10 300 test-1.ok.
+ * add CNAME alias.ok. 300 test-1.ok.
+ * delete A test-1.ok.
+ * </pre>
+ *
+ * <p>Supported record types are A, AAAA, PTR and CNAME.
+ */
+public final class ChangeLineParser {
+    private ChangeLineParser() {
+    }
+
+    /**
+     * Parses every change in the reader. The reader is not closed.
+     *
+     * @param reader The change lines
+     * @return The changes in the order they were read
+     * @throws IOException              if the reader can not be read
+     * @throws IllegalArgumentException if a line is not a valid change, the message has the line number
+     */
+    public static List<ChangeInput> parse(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        List<ChangeInput> changes = new ArrayList<>();
+        int lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            try {
+                changes.add(parseLine(trimmed));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": " + ex.getMessage(), ex);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Parses a single change line
+     *
+     * @param line The line, without comments
+     * @return The change
+     */
+    public static ChangeInput parseLine(String line) {
+        String[] parts = line.trim().split("\\s+");
+        String action = parts[0].toLowerCase();
+        if (action.equals("add")) {
+            if (parts.length != 5) {
+                throw new IllegalArgumentException("Expected 'add <type> <name> <ttl> <data>' but got '" + line + "'");
+            }
+            RecordType type = parseType(parts[1]);
+            return new AddChangeInput(parts[2], type, parseTtl(parts[3]), parseData(type, parts[4]));
+        } else if (action.equals("delete")) {
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Expected 'delete <type> <name>' but got '" + line + "'");
+            }
+            return new DeleteRecordSetChangeInput(parts[2], parseType(parts[1]));
+        } else {
+            throw new IllegalArgumentException("Unknown action '" + parts[0] + "', expected add or delete");
+        }
+    }
+
+    private static RecordType parseType(String type) {
+        switch (type.toUpperCase()) {
+            case "A":
+                return RecordType.A;
+            case "AAAA":
+                return RecordType.AAAA;
+            case "PTR":
+                return RecordType.PTR;
+            case "CNAME":
+                return RecordType.CNAME;
+            default:
+                throw new IllegalArgumentException("Unsupported record type '" + type + "'");
+        }
+    }
+
+    private static long parseTtl(String ttl) {
+        try {
+            return Long.parseLong(ttl);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid ttl '" + ttl + "'");
+        }
+    }
+
+    private static RecordData parseData(RecordType type, String data) {
+        switch (type) {
+            case A:
+                return new AData(data);
+            case AAAA:
+                return new AAAAData(data);
+            case PTR:
+                return new PTRData(data);
+            default:
+                return new CNAMEData(data);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.vinyldns.sample.helper;
+
+import com.amazonaws.auth.AWSCredentials;
+import io.vinyldns.java.VinylDNSClient;
+import io.vinyldns.java.VinylDNSClientConfig;
+import io.vinyldns.java.VinylDNSClientImpl;
+import io.vinyldns.java.responses.VinylDNSResponse;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.NoRouteToHostException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Spreads requests over several VinylDNS API nodes and fails over between them.
+ *
+ * <p>Each call goes to the healthy node with the fewest outstanding requests, ties are broken by
+ * the lowest recent latency. Health is checked passively: a node that errors is taken out of
+ * rotation for a cool down period and then tried again with the next request.
+ *
+ * <p>Health can also be checked actively against the unauthenticated /health endpoint of every
+ * node, either once with checkHealth or on a schedule with startHealthChecks. A node that fails the
+ * check stays out of rotation until the next check, so user requests are not used to find out
+ * whether it came back.
+ */
+public class EndpointPool {
+    private static final long DEFAULT_COOLDOWN_MILLIS = 5000L;
+    private static final int HEALTH_CHECK_TIMEOUT_MILLIS = 2000;
+    // weight given to the newest sample in the moving average of latency
+    private static final double LATENCY_ALPHA = 0.2;
+    // the client reports transport failures as a response without an http status, with the
+    // exception in the message; these mean the connection was never made so nothing was sent
+    private static final String[] NOT_SENT_MARKERS = {
+            "ConnectException", "Connection refused", "UnknownHostException", "NoRouteToHostException",
+            "No route to host", "connect timed out"
+    };
+
+    private final List<Endpoint> endpoints;
+    private final long cooldownMillis;
+    private final Predicate<String> healthCheck;
+    private ScheduledExecutorService healthChecker;
+
+    /**
+     * Create a new pool with one client per url
+     *
+     * @param vinylDNSUrls The url endpoints for vinyldns, at least one is required
+     * @param credentials  The credentials used to sign requests to every endpoint
+     */
+    public EndpointPool(List<String> vinylDNSUrls, AWSCredentials credentials) {
+        this(vinylDNSUrls, credentials, DEFAULT_COOLDOWN_MILLIS);
+    }
+
+    /**
+     * Create a new pool with one client per url
+     *
+     * @param vinylDNSUrls   The url endpoints for vinyldns, at least one is required
+     * @param credentials    The credentials used to sign requests to every endpoint
+     * @param cooldownMillis How long a failed endpoint is kept out of rotation
+     */
+    public EndpointPool(List<String> vinylDNSUrls, AWSCredentials credentials, long cooldownMillis) {
+        this(vinylDNSUrls, credentials, cooldownMillis, EndpointPool::isHealthy);
+    }
+
+    EndpointPool(List<String> vinylDNSUrls, AWSCredentials credentials, long cooldownMillis,
+                 Predicate<String> healthCheck) {
+        if (vinylDNSUrls == null || vinylDNSUrls.isEmpty()) {
+            throw new IllegalArgumentException("At least one vinyldns url is required");
+        }
+
+        List<Endpoint> built = new ArrayList<>();
+        for (String url : vinylDNSUrls) {
+            String trimmed = url.trim();
+            if (!trimmed.isEmpty()) {
+                built.add(new Endpoint(trimmed, new VinylDNSClientImpl(new VinylDNSClientConfig(trimmed, credentials))));
+            }
+        }
+        if (built.isEmpty()) {
+            throw new IllegalArgumentException("At least one vinyldns url is required");
+        }
+        this.endpoints = Collections.unmodifiableList(built);
+        this.cooldownMillis = cooldownMillis;
+        this.healthCheck = healthCheck;
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Returns the client of the endpoint that would currently be chosen for a request
+     */
+    public VinylDNSClient getClient() {
+        return select(Collections.<Endpoint>emptySet()).getClient();
+    }
+
+    /**
+     * Runs a read only call, moving on to the next endpoint if the call throws or the endpoint
+     * responds with a server error. Every endpoint is tried at most once.
+     */
+    public <T> VinylDNSResponse<T> read(Function<VinylDNSClient, VinylDNSResponse<T>> call) {
+        return execute(call, false);
+    }
+
+    /**
+     * Runs a call that changes state. The call only moves on to the next endpoint when the failed
+     * endpoint could not have acted on the request: the connection could not be made or the
+     * endpoint answered 503. Anything else, such as a read timeout, is returned as is so a write is
+     * never applied twice.
+     */
+    public <T> VinylDNSResponse<T> write(Function<VinylDNSClient, VinylDNSResponse<T>> call) {
+        return execute(call, true);
+    }
+
+    /**
+     * Checks the health of every endpoint now. An endpoint that fails is kept out of rotation for
+     * the cool down period, one that passes is put back in rotation right away.
+     */
+    public void checkHealth() {
+        checkHealth(cooldownMillis);
+    }
+
+    /**
+     * Checks the health of every endpoint on a background thread every intervalMillis until
+     * stopHealthChecks is called. Calling it again while checks run does nothing.
+     */
+    public synchronized void startHealthChecks(long intervalMillis) {
+        if (healthChecker != null) {
+            return;
+        }
+        healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "vinyldns-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // a failed endpoint stays down until the check after next could bring it back
+        healthChecker.scheduleWithFixedDelay(() -> checkHealth(cooldownMillis + intervalMillis),
+                0L, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopHealthChecks() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+            healthChecker = null;
+        }
+    }
+
+    private void checkHealth(long downForMillis) {
+        for (Endpoint endpoint : endpoints) {
+            boolean healthy;
+            try {
+                healthy = healthCheck.test(endpoint.getUrl());
+            } catch (RuntimeException ex) {
+                healthy = false;
+            }
+            if (healthy) {
+                endpoint.downUntil = 0L;
+            } else {
+                endpoint.markDown(downForMillis);
+            }
+        }
+    }
+
+    private static boolean isHealthy(String url) {
+        HttpURLConnection connection = null;
+        try {
+            String base = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+            connection = (HttpURLConnection) new URL(base + "/health").openConnection();
+            connection.setConnectTimeout(HEALTH_CHECK_TIMEOUT_MILLIS);
+            connection.setReadTimeout(HEALTH_CHECK_TIMEOUT_MILLIS);
+            return connection.getResponseCode() == 200;
+        } catch (IOException ex) {
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private <T> VinylDNSResponse<T> execute(Function<VinylDNSClient, VinylDNSResponse<T>> call, boolean isWrite) {
+        Set<Endpoint> tried = new HashSet<>();
+        VinylDNSResponse<T> lastResponse = null;
+        RuntimeException lastError = null;
+
+        while (tried.size() < endpoints.size()) {
+            Endpoint endpoint = select(tried);
+            tried.add(endpoint);
+
+            long start = System.nanoTime();
+            endpoint.outstanding.incrementAndGet();
+            try {
+                VinylDNSResponse<T> response = call.apply(endpoint.getClient());
+                int status = response.getStatusCode();
+                if (status < 100 || status >= 500) {
+                    endpoint.markDown(cooldownMillis);
+                    lastResponse = response;
+                    lastError = null;
+                    boolean notSent = status == 503 || (status < 100 && isNotSent(response.getMessageBody()));
+                    if (isWrite && !notSent) {
+                        return response;
+                    }
+                    continue;
+                }
+                endpoint.markUp(System.nanoTime() - start);
+                return response;
+            } catch (RuntimeException ex) {
+                endpoint.markDown(cooldownMillis);
+                lastResponse = null;
+                lastError = ex;
+                if (isWrite && !isNotSent(ex)) {
+                    throw ex;
+                }
+            } finally {
+                endpoint.outstanding.decrementAndGet();
+            }
+        }
+
+        if (lastError != null) {
+            throw lastError;
+        }
+        return lastResponse;
+    }
+
+    private Endpoint select(Set<Endpoint> exclude) {
+        long now = System.currentTimeMillis();
+        Endpoint best = null;
+        Endpoint soonestUp = null;
+        for (Endpoint endpoint : endpoints) {
+            if (exclude.contains(endpoint)) {
+                continue;
+            }
+            if (endpoint.downUntil > now) {
+                if (soonestUp == null || endpoint.downUntil < soonestUp.downUntil) {
+                    soonestUp = endpoint;
+                }
+                continue;
+            }
+            if (best == null || endpoint.isPreferredTo(best)) {
+                best = endpoint;
+            }
+        }
+        // when every endpoint is cooling down we still have to try something
+        return best != null ? best : soonestUp;
+    }
+
+    private static boolean isNotSent(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof ConnectException || t instanceof UnknownHostException
+                    || t instanceof NoRouteToHostException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isNotSent(String transportError) {
+        if (transportError == null) {
+            return false;
+        }
+        for (String marker : NOT_SENT_MARKERS) {
+            if (transportError.contains(marker)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A single VinylDNS API node and what we currently know about its health
+     */
+    public static class Endpoint {
+        private final String url;
+        private final VinylDNSClient client;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile long downUntil;
+        private volatile double latencyNanos;
+
+        Endpoint(String url, VinylDNSClient client) {
+            this.url = url;
+            this.client = client;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public VinylDNSClient getClient() {
+            return client;
+        }
+
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        public boolean isHealthy() {
+            return downUntil <= System.currentTimeMillis();
+        }
+
+        private boolean isPreferredTo(Endpoint other) {
+            int thisOutstanding = outstanding.get();
+            int otherOutstanding = other.outstanding.get();
+            if (thisOutstanding != otherOutstanding) {
+                return thisOutstanding < otherOutstanding;
+            }
+            return latencyNanos < other.latencyNanos;
+        }
+
+        private void markUp(long elapsedNanos) {
+            downUntil = 0L;
+            // racy on purpose, an occasionally lost sample does not matter for a moving average
+            double current = latencyNanos;
+            latencyNanos = current == 0 ? elapsedNanos : current + LATENCY_ALPHA * (elapsedNanos - current);
+        }
+
+        private void markDown(long cooldownMillis) {
+            downUntil = System.currentTimeMillis() + cooldownMillis;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.vinyldns.sample.helper;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free histogram of latencies in milliseconds.
+ *
+ * <p>Values are counted in buckets that grow exponentially, four per power of two, so recording is
+ * a couple of bit operations and an atomic increment, and a reported percentile is at most 25%
+ * above the real value.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long millis) {
+        long value = Math.max(1L, millis);
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the latency that the given percentage of recorded values are at or below
+     *
+     * @param percentile A percentile between 0 and 100
+     * @return The upper bound of the bucket holding the percentile, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0L;
+        }
+        long target = Math.max(1L, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private static int bucketOf(long value) {
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = exponent >= SUB_BUCKET_BITS
+                ? (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1)
+                : (int) (value << (SUB_BUCKET_BITS - exponent)) & (SUB_BUCKETS - 1);
+        return exponent * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        int exponent = bucket / SUB_BUCKETS;
+        int subBucket = bucket % SUB_BUCKETS;
+        // bucket covers [(4 + sub) * 2^exp / 4, (5 + sub) * 2^exp / 4)
+        double upper = (SUB_BUCKETS + subBucket + 1) * Math.pow(2, exponent) / SUB_BUCKETS;
+        return Math.max(1L, (long) Math.ceil(upper) - 1);
+    }
+}
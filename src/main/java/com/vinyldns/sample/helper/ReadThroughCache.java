@@ -0,0 +1,160 @@
+package com.vinyldns.sample.helper;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * A size bounded cache that loads missing values on demand.
+ *
+ * <p>How long a value is kept is decided per value, so a lookup that can never change again can
+ * be kept until it is evicted while one that still may change expires quickly. When the cache is
+ * full the least recently used entry is evicted. Concurrent lookups of the same missing key share
+ * a single load. A load that is running when its key is invalidated is not cached.
+ */
+public class ReadThroughCache<K, V> {
+    /**
+     * Returned by the time to live function for values that should be kept until evicted
+     */
+    public static final long FOREVER = Long.MAX_VALUE;
+
+    private final Map<K, CachedValue<V>> entries;
+    private final Map<K, Load<V>> inFlight = new ConcurrentHashMap<>();
+    private final ToLongFunction<V> timeToLiveMillis;
+
+    /**
+     * Create a new cache
+     *
+     * @param maxSize          The most entries to hold before evicting the least recently used
+     * @param timeToLiveMillis How long to keep a loaded value; FOREVER to keep it until evicted,
+     *                         zero or less to not cache it at all
+     */
+    public ReadThroughCache(int maxSize, ToLongFunction<V> timeToLiveMillis) {
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.entries = new LinkedHashMap<K, CachedValue<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CachedValue<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value for the key, loading it if it is missing or expired
+     *
+     * @param key    The key to look up
+     * @param loader Loads the value when it is not cached, only one load per key runs at a time
+     * @return The cached or freshly loaded value
+     */
+    public V get(K key, Supplier<V> loader) {
+        V cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Load<V> load = new Load<>();
+        Load<V> existing = inFlight.putIfAbsent(key, load);
+        if (existing != null) {
+            return await(existing.result);
+        }
+
+        try {
+            // another load may have finished between our lookup and taking the in flight slot
+            V value = lookup(key);
+            if (value == null) {
+                value = loader.get();
+                store(key, value, load);
+            }
+            load.result.complete(value);
+            return value;
+        } catch (Throwable ex) {
+            // errors too, or every waiter would block on the load forever
+            load.result.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+
+    /**
+     * Drops the cached value for the key. A load of the key that is already running still returns
+     * its value to its callers but does not cache it, and later lookups start a new load.
+     */
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+        Load<V> load = inFlight.remove(key);
+        if (load != null) {
+            load.invalidated = true;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        for (Load<V> load : inFlight.values()) {
+            load.invalidated = true;
+        }
+        inFlight.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized V lookup(K key) {
+        CachedValue<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    private synchronized void store(K key, V value, Load<V> load) {
+        if (value == null || load.invalidated) {
+            return;
+        }
+        long ttl = timeToLiveMillis.applyAsLong(value);
+        if (ttl <= 0) {
+            return;
+        }
+        long expiresAt = ttl == FOREVER ? FOREVER : System.currentTimeMillis() + ttl;
+        entries.put(key, new CachedValue<>(value, expiresAt));
+    }
+
+    private static <V> V await(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private static class Load<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        // only read and written while holding the cache lock
+        private boolean invalidated;
+    }
+
+    private static class CachedValue<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private CachedValue(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
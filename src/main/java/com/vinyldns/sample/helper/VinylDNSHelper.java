@@ -2,39 +2,54 @@ package com.vinyldns.sample.helper;
 
 import com.amazonaws.auth.BasicAWSCredentials;
 import io.vinyldns.java.VinylDNSClient;
-import io.vinyldns.java.VinylDNSClientConfig;
-import io.vinyldns.java.VinylDNSClientImpl;
+import io.vinyldns.java.model.batch.BatchChangeStatus;
 import io.vinyldns.java.model.batch.BatchResponse;
 import io.vinyldns.java.model.batch.CreateBatchRequest;
+import io.vinyldns.java.model.membership.GetGroupRequest;
+import io.vinyldns.java.model.membership.Group;
+import io.vinyldns.java.model.record.set.ListRecordSetsRequest;
+import io.vinyldns.java.model.record.set.ListRecordSetsResponse;
+import io.vinyldns.java.model.zone.GetZoneResponse;
+import io.vinyldns.java.model.zone.ZoneRequest;
 import io.vinyldns.java.responses.VinylDNSResponse;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * This is a helper class that makes it easier to work with the VinylDNSClient
+ *
+ * <p>The helper can talk to several VinylDNS API nodes; requests are balanced between them and
+ * fail over when a node goes away, see EndpointPool
+ *
+ * <p>Batch, zone and group lookups are cached, see getBatchChanges, getZone and getGroup
+ *
+ * <p>With a ChangeLatencyTracker set, every submitted batch change is timed until it is seen Complete
  */
 public class VinylDNSHelper {
-    private final VinylDNSClient vinylDNSClient;
+    private static final int CACHE_SIZE = 10000;
+    private static final long PENDING_BATCH_TTL_MILLIS = 1000L;
+    private static final long ZONE_TTL_MILLIS = 30000L;
+    private static final long GROUP_TTL_MILLIS = 30000L;
+
+    private final EndpointPool endpointPool;
+    private volatile ChangeLatencyTracker latencyTracker;
+    private final ReadThroughCache<String, VinylDNSResponse<BatchResponse>> batchCache =
+            new ReadThroughCache<>(CACHE_SIZE, VinylDNSHelper::batchTimeToLive);
+    private final ReadThroughCache<String, VinylDNSResponse<GetZoneResponse>> zoneCache =
+            new ReadThroughCache<>(CACHE_SIZE, r -> r.getStatusCode() == 200 ? ZONE_TTL_MILLIS : 0L);
+    private final ReadThroughCache<String, VinylDNSResponse<Group>> groupCache =
+            new ReadThroughCache<>(CACHE_SIZE, r -> r.getStatusCode() == 200 ? GROUP_TTL_MILLIS : 0L);
 
     /**
      * Create a new VinylDNSHelper instance using environment variables
+     *
+     * <p>VINYLDNS_URL may hold a comma separated list of urls to spread requests over
      */
     public VinylDNSHelper() {
         // Default constructor assumes environment variables or will throw an error if not set
         // Note: if any of these are not in the environment, this will fail
-        String accessKey = System.getenv("VINYLDNS_ACCESS_KEY");
-        String secretKey = System.getenv("VINYLDNS_SECRET_KEY");
-        String vinylDNSUrl = System.getenv("VINYLDNS_URL");
-
-        if (accessKey == null || secretKey == null || vinylDNSUrl == null) {
-            throw new RuntimeException("Unable to load vinyldns, environment variables not found");
-        }
-
-        VinylDNSClientConfig config =
-                new VinylDNSClientConfig(vinylDNSUrl, new BasicAWSCredentials(accessKey, secretKey));
-        this.vinylDNSClient = new VinylDNSClientImpl(config);
-    }
-
-    public VinylDNSClient getVinylDNSClient() {
-        return vinylDNSClient;
+        this(System.getenv("VINYLDNS_ACCESS_KEY"), System.getenv("VINYLDNS_SECRET_KEY"), System.getenv("VINYLDNS_URL"));
     }
 
     /**
@@ -42,16 +57,49 @@ public class VinylDNSHelper {
      *
      * @param accessKey   The access key for the VinylDNS user
      * @param secretKey   The secret key (PRIVATE!) for the VinylDNS user
-     * @param vinylDNSUrl The url endpoint for vinyldns
+     * @param vinylDNSUrl The url endpoint for vinyldns, or a comma separated list of url endpoints
      */
     public VinylDNSHelper(String accessKey, String secretKey, String vinylDNSUrl) {
-        if (accessKey == null || secretKey == null || vinylDNSUrl == null) {
+        this(accessKey, secretKey, vinylDNSUrl == null ? null : Arrays.asList(vinylDNSUrl.split(",")));
+    }
+
+    /**
+     * Create a new VinylDNSHelper instance that spreads requests over several VinylDNS API nodes
+     *
+     * @param accessKey    The access key for the VinylDNS user
+     * @param secretKey    The secret key (PRIVATE!) for the VinylDNS user
+     * @param vinylDNSUrls The url endpoints for vinyldns
+     */
+    public VinylDNSHelper(String accessKey, String secretKey, List<String> vinylDNSUrls) {
+        if (accessKey == null || secretKey == null || vinylDNSUrls == null) {
             throw new RuntimeException("Unable to load vinyldns, environment variables not found");
         }
 
-        VinylDNSClientConfig config =
-                new VinylDNSClientConfig(vinylDNSUrl, new BasicAWSCredentials(accessKey, secretKey));
-        this.vinylDNSClient = new VinylDNSClientImpl(config);
+        this.endpointPool = new EndpointPool(vinylDNSUrls, new BasicAWSCredentials(accessKey, secretKey));
+    }
+
+    /**
+     * Returns the client for the endpoint that is currently preferred. Calls made directly on the
+     * client do not fail over, prefer the methods on this helper where they exist.
+     */
+    public VinylDNSClient getVinylDNSClient() {
+        return endpointPool.getClient();
+    }
+
+    public EndpointPool getEndpointPool() {
+        return endpointPool;
+    }
+
+    public ChangeLatencyTracker getLatencyTracker() {
+        return latencyTracker;
+    }
+
+    /**
+     * Times batch changes submitted from now on, null to stop. Requests should also be built with
+     * this tracker so the time between building and submitting is included.
+     */
+    public void setLatencyTracker(ChangeLatencyTracker latencyTracker) {
+        this.latencyTracker = latencyTracker;
     }
 
     /**
@@ -59,18 +107,142 @@ public class VinylDNSHelper {
      *
      * <p>If everything is successful, returns the BatchResponse that can be inspected if need be
      *
+     * <p>The request is only sent to another endpoint if the first one could not have received it
+     *
      * @param request A populated CreateBatchRequest instance
      * @return BatchChangeResponse
      * @throws BatchRequestError in the event that there are any errors with the batch that was
      *                           submitted. These could be "zone does not exist" for example.
      */
     public BatchResponse submitBatchRequest(CreateBatchRequest request) throws BatchRequestError {
-        VinylDNSResponse<BatchResponse> response = vinylDNSClient.createBatchChanges(request);
-        if (response.getStatusCode() > 202) {
-            // we have errors
-            throw new BatchRequestError(response.getMessageBody());
-        } else {
-            return response.getValue();
+        ChangeLatencyTracker tracker = latencyTracker;
+        if (tracker != null) {
+            tracker.submitted(request);
+        }
+
+        BatchResponse response;
+        try {
+            response = submitBatchRequestUntracked(request);
+        } catch (BatchRequestError | RuntimeException ex) {
+            if (tracker != null) {
+                tracker.rejected(request);
+            }
+            throw ex;
+        }
+        if (tracker != null) {
+            tracker.accepted(request, response);
+        }
+        return response;
+    }
+
+    /**
+     * Submits a batch request like submitBatchRequest but without telling the latency tracker, for
+     * callers such as BatchCoalescer that report to the tracker themselves
+     */
+    public BatchResponse submitBatchRequestUntracked(CreateBatchRequest request) throws BatchRequestError {
+        VinylDNSResponse<BatchResponse> response = endpointPool.write(c -> c.createBatchChanges(request));
+        if (response.getStatusCode() < 200 || response.getStatusCode() > 202) {
+            // we have errors, a status below 200 means the request never got an http response
+            throw new BatchRequestError(response.getMessageBody(), response.getStatusCode());
+        }
+        return response.getValue();
+    }
+
+    /**
+     * Looks up a batch change, failing over to another endpoint if need be
+     *
+     * <p>Batches that are Complete, Failed or PartialFailure never change again and stay cached
+     * until evicted; a pending batch is cached for a second so pollers may see it a little late
+     *
+     * @param batchId The id of the batch change
+     * @return The raw response, check the status code before using the value
+     */
+    public VinylDNSResponse<BatchResponse> getBatchChanges(String batchId) {
+        VinylDNSResponse<BatchResponse> response =
+                batchCache.get(batchId, () -> endpointPool.read(c -> c.getBatchChanges(batchId)));
+        ChangeLatencyTracker tracker = latencyTracker;
+        if (tracker != null && response.getStatusCode() == 200) {
+            tracker.observed(response.getValue());
         }
+        return response;
+    }
+
+    /**
+     * Looks up a batch change like getBatchChanges, returning null when it could not be found
+     */
+    BatchResponse getBatchChange(String batchId) {
+        VinylDNSResponse<BatchResponse> response = getBatchChanges(batchId);
+        return response.getStatusCode() == 200 ? response.getValue() : null;
+    }
+
+    /**
+     * Looks up a zone, failing over to another endpoint if need be
+     *
+     * <p>A zone that was found is cached for 30 seconds, use invalidateZone after changing it
+     *
+     * @param request The zone to look up
+     * @return The raw response, check the status code before using the value
+     */
+    public VinylDNSResponse<GetZoneResponse> getZone(ZoneRequest request) {
+        return zoneCache.get(request.getId(), () -> endpointPool.read(c -> c.getZone(request)));
+    }
+
+    /**
+     * Looks up a zone without using the cache, for callers waiting on a zone to change state
+     *
+     * <p>Any cached entry for the zone is dropped so getZone does not return it afterwards
+     *
+     * @param request The zone to look up
+     * @return The raw response, check the status code before using the value
+     */
+    public VinylDNSResponse<GetZoneResponse> pollZone(ZoneRequest request) {
+        zoneCache.invalidate(request.getId());
+        return endpointPool.read(c -> c.getZone(request));
+    }
+
+    public void invalidateZone(String zoneId) {
+        zoneCache.invalidate(zoneId);
+    }
+
+    /**
+     * Looks up a group, failing over to another endpoint if need be
+     *
+     * <p>A group that was found is cached for 30 seconds, use invalidateGroup after changing it
+     *
+     * @param groupId The id of the group
+     * @return The raw response, check the status code before using the value
+     */
+    public VinylDNSResponse<Group> getGroup(String groupId) {
+        return groupCache.get(groupId, () -> endpointPool.read(c -> c.getGroup(new GetGroupRequest(groupId))));
+    }
+
+    public void invalidateGroup(String groupId) {
+        groupCache.invalidate(groupId);
+    }
+
+    /**
+     * Lists record sets in a zone, failing over to another endpoint if need be
+     *
+     * @param request The zone and filter to list record sets for
+     * @return The raw response, check the status code before using the value
+     */
+    public VinylDNSResponse<ListRecordSetsResponse> listRecordSets(ListRecordSetsRequest request) {
+        return endpointPool.read(c -> c.listRecordSets(request));
+    }
+
+    private static long batchTimeToLive(VinylDNSResponse<BatchResponse> response) {
+        if (response.getStatusCode() != 200 || response.getValue() == null) {
+            return 0L;
+        }
+        return isTerminal(response.getValue().getStatus()) ? ReadThroughCache.FOREVER : PENDING_BATCH_TTL_MILLIS;
+    }
+
+    /**
+     * Returns true when a batch change with this status will not change again
+     */
+    public static boolean isTerminal(BatchChangeStatus status) {
+        return status == BatchChangeStatus.Complete
+                || status == BatchChangeStatus.Failed
+                || status == BatchChangeStatus.PartialFailure;
     }
 }
@@ -0,0 +1,80 @@
+package com.vinyldns.sample;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BulkApplyOptionsTest {
+
+    @Test
+    public void parsesEveryFlag() {
+        BulkApplyOptions options = BulkApplyOptions.parse(new String[] {
+                "--owner-group-id", "group", "--file", "changes.txt", "--chunk-size", "50", "--parallelism", "8",
+                "--rate", "250", "--comments", "bulk load with spaces", "--poll-interval-ms", "500",
+                "--timeout-seconds", "30", "--report", "report.tsv", "--slow-ms", "1000"});
+
+        assertEquals("group", options.ownerGroupId);
+        assertEquals("changes.txt", options.file);
+        assertEquals(50, options.chunkSize);
+        assertEquals(8, options.parallelism);
+        assertEquals(250, options.rate);
+        assertEquals("bulk load with spaces", options.comments);
+        assertEquals(500L, options.pollIntervalMillis);
+        assertEquals(30L, options.timeoutSeconds);
+        assertEquals("report.tsv", options.report);
+        assertEquals(1000L, options.slowMillis);
+        assertFalse(options.dryRun);
+    }
+
+    @Test
+    public void usesDefaultsForFlagsThatAreNotGiven() {
+        BulkApplyOptions options = BulkApplyOptions.parse(new String[] {"--owner-group-id", "group"});
+
+        assertNull(options.file);
+        assertEquals(100, options.chunkSize);
+        assertEquals(4, options.parallelism);
+        assertEquals(0, options.rate);
+    }
+
+    @Test
+    public void aRateOfZeroMeansNoLimit() {
+        assertEquals(0, BulkApplyOptions.parse(new String[] {"--owner-group-id", "group", "--rate", "0"}).rate);
+    }
+
+    @Test
+    public void aDryRunNeedsNoOwnerGroup() {
+        BulkApplyOptions options = BulkApplyOptions.parse(new String[] {"--dry-run"});
+
+        assertTrue(options.dryRun);
+        assertNull(options.ownerGroupId);
+    }
+
+    @Test
+    public void helpSkipsTheOtherChecks() {
+        assertTrue(BulkApplyOptions.parse(new String[] {"--help"}).help);
+    }
+
+    @Test
+    public void rejectsBadInput() {
+        assertRejected("--owner-group-id is required", "--file", "changes.txt");
+        assertRejected("--file needs a value", "--owner-group-id", "group", "--file");
+        assertRejected("--rate must not be negative", "--owner-group-id", "group", "--rate", "-1");
+        assertRejected("--chunk-size must be greater than zero", "--owner-group-id", "group", "--chunk-size", "0");
+        assertRejected("--parallelism must be a number but got 'four'",
+                "--owner-group-id", "group", "--parallelism", "four");
+        assertRejected("Unknown option --verbose", "--owner-group-id", "group", "--verbose");
+    }
+
+    private static void assertRejected(String message, String... args) {
+        try {
+            BulkApplyOptions.parse(args);
+            fail("expected " + String.join(" ", args) + " to be rejected");
+        } catch (IllegalArgumentException expected) {
+            assertEquals(message, expected.getMessage());
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.vinyldns.sample.helper;
+
+import com.vinyldns.sample.helper.BatchCoalescer.CoalescedChange;
+import io.vinyldns.java.model.batch.BatchResponse;
+import io.vinyldns.java.model.batch.ChangeInput;
+import io.vinyldns.java.model.batch.CreateBatchRequest;
+import io.vinyldns.java.model.batch.DeleteRecordSetChangeInput;
+import io.vinyldns.java.model.batch.SingleChangeStatus;
+import io.vinyldns.java.model.record.RecordType;
+import io.vinyldns.java.serializers.SerializationFactory;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchCoalescerTest {
+    private final FakeHelper helper = new FakeHelper();
+    private BatchCoalescer coalescer;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (coalescer != null) {
+            coalescer.close();
+        }
+    }
+
+    @Test
+    public void sendsAsSoonAsABatchIsFull() throws Exception {
+        coalescer = coalescer(4, 60000L, 1);
+
+        List<CompletableFuture<CoalescedChange>> results = addAll("a", 4);
+
+        for (int i = 0; i < 4; i++) {
+            CoalescedChange result = results.get(i).get(5, TimeUnit.SECONDS);
+            assertEquals("a" + i + ".ok.", result.getChange().getInputName());
+            assertEquals("batch-1", result.getBatchId());
+            assertEquals(SingleChangeStatus.Complete, result.getChange().getStatus());
+        }
+        assertEquals(1, helper.requestSizes.size());
+        assertEquals(Integer.valueOf(4), helper.requestSizes.get(0));
+    }
+
+    @Test
+    public void sendsAPartialBatchAfterTheLingerTime() throws Exception {
+        coalescer = coalescer(100, 50L, 1);
+
+        List<CompletableFuture<CoalescedChange>> results = addAll("a", 3);
+
+        for (CompletableFuture<CoalescedChange> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(1, helper.requestSizes.size());
+        assertEquals(Integer.valueOf(3), helper.requestSizes.get(0));
+    }
+
+    @Test
+    public void onlyTheRejectedChangeFails() throws Exception {
+        coalescer = coalescer(8, 60000L, 1);
+
+        List<CompletableFuture<CoalescedChange>> results = addAll("a", 5);
+        CompletableFuture<CoalescedChange> bad = coalescer.add(change("bad.ok."));
+        results.addAll(addAll("b", 2));
+
+        try {
+            bad.get(5, TimeUnit.SECONDS);
+            fail("expected the bad change to be rejected");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof BatchRequestError);
+        }
+        for (CompletableFuture<CoalescedChange> result : results) {
+            assertFalse(result.get(5, TimeUnit.SECONDS).getChange().getInputName().startsWith("bad"));
+        }
+    }
+
+    @Test
+    public void aSplitBatchIsTrackedOnce() throws Exception {
+        ChangeLatencyTracker tracker = new ChangeLatencyTracker(60000L);
+        helper.setLatencyTracker(tracker);
+        coalescer = coalescer(8, 60000L, 1);
+
+        List<CompletableFuture<CoalescedChange>> results = addAll("a", 5);
+        CompletableFuture<CoalescedChange> bad = coalescer.add(change("bad.ok."));
+        results.addAll(addAll("b", 2));
+
+        for (CompletableFuture<CoalescedChange> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        try {
+            bad.get(5, TimeUnit.SECONDS);
+            fail("expected the bad change to be rejected");
+        } catch (ExecutionException expected) {
+            // expected
+        }
+        assertEquals(1, tracker.getFailedChanges());
+        assertEquals(7, tracker.getTotal().getCount());
+        assertEquals(0, tracker.getInFlight());
+    }
+
+    @Test
+    public void theLatencyIncludesTheTimeSpentWaitingForABatch() throws Exception {
+        ChangeLatencyTracker tracker = new ChangeLatencyTracker(60000L);
+        helper.setLatencyTracker(tracker);
+        coalescer = coalescer(100, 200L, 1);
+
+        coalescer.add(change("a.ok.")).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, tracker.getTotal().getCount());
+        assertTrue(tracker.getTotal().getMax() >= 200);
+    }
+
+    @Test
+    public void failsChangesWhoseBatchDoesNotFinishInTime() throws Exception {
+        helper.finishing = false;
+        coalescer = new BatchCoalescer(helper, "owner", 1, 60000L, 1, 10L, 50L);
+
+        try {
+            coalescer.add(change("a.ok.")).get(5, TimeUnit.SECONDS);
+            fail("expected the change to time out");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof TimeoutException);
+        }
+    }
+
+    @Test
+    public void everyChangeFromManyThreadsIsSentOnce() throws Exception {
+        coalescer = coalescer(50, 20L, 4);
+        ExecutorService producers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<CompletableFuture<CoalescedChange>>>> added = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                String prefix = "t" + t + "-";
+                added.add(producers.submit(() -> addAll(prefix, 250)));
+            }
+
+            int completed = 0;
+            for (Future<List<CompletableFuture<CoalescedChange>>> results : added) {
+                for (CompletableFuture<CoalescedChange> result : results.get(5, TimeUnit.SECONDS)) {
+                    result.get(5, TimeUnit.SECONDS);
+                    completed++;
+                }
+            }
+
+            assertEquals(2000, completed);
+            assertEquals(2000, helper.changesSent.get());
+            for (Integer size : helper.requestSizes) {
+                assertTrue(size <= 50);
+            }
+        } finally {
+            producers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void closeSendsWhatIsWaitingAndRefusesNewChanges() throws Exception {
+        coalescer = coalescer(100, 60000L, 1);
+        List<CompletableFuture<CoalescedChange>> results = addAll("a", 3);
+
+        coalescer.close();
+
+        for (CompletableFuture<CoalescedChange> result : results) {
+            assertTrue(result.isDone());
+            result.get();
+        }
+        try {
+            coalescer.add(change("late.ok."));
+            fail("expected the closed coalescer to refuse the change");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+
+    private BatchCoalescer coalescer(int maxChanges, long lingerMillis, int senderThreads) {
+        return new BatchCoalescer(helper, "owner", maxChanges, lingerMillis, senderThreads, 10L, 5000L);
+    }
+
+    private List<CompletableFuture<CoalescedChange>> addAll(String prefix, int count) {
+        List<CompletableFuture<CoalescedChange>> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            results.add(coalescer.add(change(prefix + i + ".ok.")));
+        }
+        return results;
+    }
+
+    private static ChangeInput change(String name) {
+        return new DeleteRecordSetChangeInput(name, RecordType.A);
+    }
+
+    /**
+     * Accepts every batch unless it has a change whose name starts with "bad", like VinylDNS
+     * rejecting a whole batch for one invalid change, and finishes every accepted batch at once
+     */
+    private static class FakeHelper extends VinylDNSHelper {
+        private final List<Integer> requestSizes = new CopyOnWriteArrayList<>();
+        private final AtomicInteger changesSent = new AtomicInteger();
+        private final AtomicInteger batchIds = new AtomicInteger();
+        private final Map<String, String> batches = new ConcurrentHashMap<>();
+        private volatile boolean finishing = true;
+
+        FakeHelper() {
+            super("accessKey", "secretKey", "http://localhost:1");
+        }
+
+        @Override
+        public BatchResponse submitBatchRequestUntracked(CreateBatchRequest request) throws BatchRequestError {
+            StringBuilder changes = new StringBuilder();
+            for (ChangeInput change : request.getChanges()) {
+                if (change.getInputName().startsWith("bad")) {
+                    throw new BatchRequestError("Invalid change " + change.getInputName(), 400);
+                }
+                if (changes.length() > 0) {
+                    changes.append(',');
+                }
+                changes.append("{\"changeType\":\"DeleteRecordSet\",\"inputName\":\"").append(change.getInputName())
+                        .append("\",\"type\":\"A\",\"status\":\"%s\",\"zoneName\":\"ok.\"}");
+            }
+            requestSizes.add(request.getChanges().size());
+            changesSent.addAndGet(request.getChanges().size());
+            String id = "batch-" + batchIds.incrementAndGet();
+            batches.put(id, "{\"id\":\"" + id + "\",\"status\":\"%s\",\"changes\":[" + changes + "]}");
+            return batch(id, "Pending");
+        }
+
+        @Override
+        BatchResponse getBatchChange(String batchId) {
+            BatchResponse response = batch(batchId, finishing ? "Complete" : "Pending");
+            // like getBatchChanges, which this fake skips
+            ChangeLatencyTracker tracker = getLatencyTracker();
+            if (tracker != null) {
+                tracker.observed(response);
+            }
+            return response;
+        }
+
+        private BatchResponse batch(String batchId, String status) {
+            String json = batches.get(batchId).replace("%s", status);
+            return SerializationFactory.createGson().fromJson(json, BatchResponse.class);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.vinyldns.sample.helper;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import io.vinyldns.java.model.batch.AddChangeInput;
+import io.vinyldns.java.model.batch.ChangeInput;
+import io.vinyldns.java.model.batch.CreateBatchRequest;
+import io.vinyldns.java.model.batch.DeleteRecordSetChangeInput;
+import io.vinyldns.java.model.record.RecordType;
+import io.vinyldns.java.model.record.data.AAAAData;
+import io.vinyldns.java.model.record.data.AData;
+import io.vinyldns.java.model.record.data.CNAMEData;
+import io.vinyldns.java.model.record.data.PTRData;
+import io.vinyldns.java.serializers.SerializationFactory;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class BatchRequestJsonWriterTest {
+
+    @Test
+    public void writesTheSameJsonAsTheClient() throws IOException {
+        List<ChangeInput> changes = Arrays.asList(
+                new AddChangeInput("test-1.ok.", RecordType.A, 300L, new AData("192.0.2.10")),
+                new AddChangeInput("test-2.ok.", RecordType.AAAA, 300L, new AAAAData("2001:db8::1")),
+                new AddChangeInput("192.0.2.10", RecordType.PTR, 7200L, new PTRData("test-1.ok.")),
+                new AddChangeInput("alias.ok.", RecordType.CNAME, 7200L, new CNAMEData("test-1.ok.")),
+                new DeleteRecordSetChangeInput("old.ok.", RecordType.A));
+        CreateBatchRequest request = new CreateBatchRequest(changes);
+        request.setOwnerGroupId("owner-group");
+        request.setComments("nightly \"cleanup\"");
+
+        assertEquals(clientJson(request), written(request));
+    }
+
+    @Test
+    public void leavesOutCommentsAndOwnerGroupWhenNotSet() throws IOException {
+        CreateBatchRequest request = new CreateBatchRequest(
+                Arrays.<ChangeInput>asList(new DeleteRecordSetChangeInput("old.ok.", RecordType.CNAME)));
+
+        assertEquals(clientJson(request), written(request));
+    }
+
+    @Test
+    public void writesUtf8ToAnOutputStream() throws IOException {
+        CreateBatchRequest request = new CreateBatchRequest(
+                Arrays.<ChangeInput>asList(new DeleteRecordSetChangeInput("old.ok.", RecordType.A)));
+        request.setComments("caf\u00e9");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        BatchRequestJsonWriter.write(request, out);
+
+        assertEquals(clientJson(request), new JsonParser().parse(new String(out.toByteArray(), StandardCharsets.UTF_8)));
+    }
+
+    private static JsonElement written(CreateBatchRequest request) throws IOException {
+        StringWriter writer = new StringWriter();
+        BatchRequestJsonWriter.write(request, writer);
+        return new JsonParser().parse(writer.toString());
+    }
+
+    private static JsonElement clientJson(CreateBatchRequest request) {
+        return SerializationFactory.createGson().toJsonTree(request);
+    }
+}
@@ -0,0 +1,121 @@
+package com.vinyldns.sample.helper;
+
+import io.vinyldns.java.model.batch.BatchResponse;
+import io.vinyldns.java.model.batch.ChangeInput;
+import io.vinyldns.java.model.batch.CreateBatchRequest;
+import io.vinyldns.java.model.batch.DeleteRecordSetChangeInput;
+import io.vinyldns.java.model.record.RecordType;
+import io.vinyldns.java.serializers.SerializationFactory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeLatencyTrackerTest {
+
+    @Test
+    public void recordsEachChangeOfAPartialFailureByItsOwnStatus() {
+        ChangeLatencyTracker tracker = new ChangeLatencyTracker(60000L);
+        accept(tracker, "batch", 3);
+
+        tracker.observed(response("batch", "PartialFailure",
+                change("www.example.com.", "A", "Complete", "example.com."),
+                change("1.2.0.192.in-addr.arpa.", "PTR", "Failed", "2.0.192.in-addr.arpa."),
+                change("mail.sub.example.com.", "AAAA", "Complete", "sub.example.com.")));
+
+        assertEquals(2, tracker.getTotal().getCount());
+        assertEquals(1, tracker.getFailedChanges());
+        assertEquals(1, tracker.getByZone().get("example.com.").getCount());
+        assertEquals(1, tracker.getByZone().get("sub.example.com.").getCount());
+        assertNull(tracker.getByZone().get("2.0.192.in-addr.arpa."));
+        assertEquals(1, tracker.getByType().get(RecordType.AAAA).getCount());
+        assertFalse(tracker.getByType().containsKey(RecordType.PTR));
+        assertEquals(0, tracker.getInFlight());
+    }
+
+    @Test
+    public void waitsForAFinalStatusAndRecordsABatchOnce() {
+        ChangeLatencyTracker tracker = new ChangeLatencyTracker(60000L);
+        accept(tracker, "batch", 1);
+
+        tracker.observed(response("batch", "Pending", change("www.example.com.", "A", "Pending", "example.com.")));
+        assertEquals(0, tracker.getTotal().getCount());
+        assertEquals(1, tracker.getInFlight());
+
+        BatchResponse complete = response("batch", "Complete", change("www.example.com.", "A", "Complete", "example.com."));
+        tracker.observed(complete);
+        tracker.observed(complete);
+        assertEquals(1, tracker.getTotal().getCount());
+    }
+
+    @Test
+    public void forgetStopsTrackingABatch() {
+        ChangeLatencyTracker tracker = new ChangeLatencyTracker(60000L);
+        accept(tracker, "batch", 2);
+
+        tracker.forget("batch");
+        tracker.observed(response("batch", "Complete",
+                change("a.example.com.", "A", "Complete", "example.com."),
+                change("b.example.com.", "A", "Complete", "example.com.")));
+
+        assertEquals(0, tracker.getInFlight());
+        assertEquals(2, tracker.getUntrackedChanges());
+        assertEquals(0, tracker.getTotal().getCount());
+    }
+
+    @Test
+    public void countsRejectedChangesAsFailed() {
+        ChangeLatencyTracker tracker = new ChangeLatencyTracker(60000L);
+        CreateBatchRequest request = request(4);
+
+        tracker.built(request);
+        tracker.submitted(request);
+        tracker.rejected(request);
+
+        assertEquals(4, tracker.getFailedChanges());
+        assertEquals(0, tracker.getInFlight());
+    }
+
+    @Test
+    public void keepsSlowChangesAsOutliers() {
+        ChangeLatencyTracker tracker = new ChangeLatencyTracker(-1L);
+        accept(tracker, "batch", 1);
+
+        tracker.observed(response("batch", "Complete", change("www.example.com.", "A", "Complete", "example.com.")));
+
+        assertEquals(1, tracker.getOutliers().size());
+        assertEquals("example.com.", tracker.getOutliers().get(0).getZone());
+        assertTrue(tracker.report().contains("www.example.com."));
+    }
+
+    private static void accept(ChangeLatencyTracker tracker, String batchId, int changes) {
+        CreateBatchRequest request = request(changes);
+        tracker.built(request);
+        tracker.submitted(request);
+        tracker.accepted(request, response(batchId, "Pending"));
+    }
+
+    private static CreateBatchRequest request(int changes) {
+        List<ChangeInput> inputs = new ArrayList<>();
+        for (int i = 0; i < changes; i++) {
+            inputs.add(new DeleteRecordSetChangeInput("host" + i + ".example.com.", RecordType.A));
+        }
+        return new CreateBatchRequest(inputs);
+    }
+
+    private static String change(String inputName, String type, String status, String zoneName) {
+        return "{\"changeType\":\"DeleteRecordSet\",\"inputName\":\"" + inputName + "\",\"type\":\"" + type
+                + "\",\"status\":\"" + status + "\",\"zoneName\":\"" + zoneName + "\"}";
+    }
+
+    private static BatchResponse response(String batchId, String status, String... changes) {
+        String json = "{\"id\":\"" + batchId + "\",\"status\":\"" + status + "\",\"changes\":["
+                + String.join(",", changes) + "]}";
+        return SerializationFactory.createGson().fromJson(json, BatchResponse.class);
+    }
+}
@@ -0,0 +1,68 @@
+package com.vinyldns.sample.helper;
+
+import io.vinyldns.java.model.batch.AddChangeInput;
+import io.vinyldns.java.model.batch.ChangeInput;
+import io.vinyldns.java.model.batch.ChangeInputType;
+import io.vinyldns.java.model.record.RecordType;
+import io.vinyldns.java.model.record.data.AData;
+import io.vinyldns.java.model.record.data.CNAMEData;
+import io.vinyldns.java.model.record.data.PTRData;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ChangeLineParserTest {
+
+    @Test
+    public void parsesChangesAndSkipsBlankAndCommentLines() throws IOException {
+        List<ChangeInput> changes = ChangeLineParser.parse(new StringReader(
+                "# comment\n"
+                        + "add A test-1.ok. 300 192.0.2.10\n"
+                        + "\n"
+                        + "  add ptr 192.0.2.10   300 test-1.ok.  \n"
+                        + "add CNAME alias.ok. 300 test-1.ok.\n"
+                        + "DELETE aaaa old.ok.\n"));
+
+        assertEquals(4, changes.size());
+
+        AddChangeInput a = (AddChangeInput) changes.get(0);
+        assertEquals("test-1.ok.", a.getInputName());
+        assertEquals(RecordType.A, a.getType());
+        assertEquals(Long.valueOf(300), a.getTtl());
+        assertEquals("192.0.2.10", ((AData) a.getRecord()).getAddress());
+
+        AddChangeInput ptr = (AddChangeInput) changes.get(1);
+        assertEquals(RecordType.PTR, ptr.getType());
+        assertEquals("test-1.ok.", ((PTRData) ptr.getRecord()).getPtrdname());
+
+        assertEquals("test-1.ok.", ((CNAMEData) ((AddChangeInput) changes.get(2)).getRecord()).getCname());
+
+        ChangeInput delete = changes.get(3);
+        assertEquals(ChangeInputType.DeleteRecordSet, delete.getChangeType());
+        assertEquals("old.ok.", delete.getInputName());
+        assertEquals(RecordType.AAAA, delete.getType());
+    }
+
+    @Test
+    public void reportsTheLineNumberOfABadLine() throws IOException {
+        assertRejected("Line 3: Invalid ttl 'soon'", "add A a.ok. 300 192.0.2.1\n# comment\nadd A b.ok. soon 192.0.2.2\n");
+        assertRejected("Line 1: Unsupported record type 'MX'", "add MX a.ok. 300 mail.ok.\n");
+        assertRejected("Line 1: Unknown action 'update', expected add or delete", "update A a.ok.\n");
+        assertRejected("Line 2: Expected 'delete <type> <name>' but got 'delete A'", "\ndelete A\n");
+        assertRejected("Line 1: Expected 'add <type> <name> <ttl> <data>' but got 'add A a.ok. 300'", "add A a.ok. 300\n");
+    }
+
+    private static void assertRejected(String message, String lines) throws IOException {
+        try {
+            ChangeLineParser.parse(new StringReader(lines));
+            fail("expected the change lines to be rejected");
+        } catch (IllegalArgumentException expected) {
+            assertEquals(message, expected.getMessage());
+        }
+    }
+}
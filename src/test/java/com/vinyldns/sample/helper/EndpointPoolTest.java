@@ -0,0 +1,77 @@
+package com.vinyldns.sample.helper;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EndpointPoolTest {
+
+    @Test
+    public void connectionFailuresAreNotSent() {
+        assertTrue(EndpointPool.isNotSent("java.net.ConnectException: Connection refused (Connection refused)"));
+        assertTrue(EndpointPool.isNotSent(
+                "org.apache.http.conn.HttpHostConnectException: Connect to localhost:9000 failed: Connection refused"));
+        assertTrue(EndpointPool.isNotSent("java.net.UnknownHostException: vinyldns-2.example.com"));
+        assertTrue(EndpointPool.isNotSent("java.net.SocketTimeoutException: connect timed out"));
+    }
+
+    @Test
+    public void failuresAfterConnectingMayHaveBeenSent() {
+        assertFalse(EndpointPool.isNotSent("java.net.SocketTimeoutException: Read timed out"));
+        assertFalse(EndpointPool.isNotSent("java.net.SocketException: Connection reset"));
+        assertFalse(EndpointPool.isNotSent(null));
+    }
+
+    @Test
+    public void healthChecksTakeFailedEndpointsOutOfRotation() {
+        Set<String> down = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        EndpointPool pool = new EndpointPool(Arrays.asList("http://node-1", "http://node-2"),
+                new BasicAWSCredentials("accessKey", "secretKey"), 60000L, url -> !down.contains(url));
+
+        down.add("http://node-1");
+        pool.checkHealth();
+        assertFalse(pool.getEndpoints().get(0).isHealthy());
+        assertTrue(pool.getEndpoints().get(1).isHealthy());
+        assertEquals(pool.getEndpoints().get(1).getClient(), pool.getClient());
+
+        down.clear();
+        pool.checkHealth();
+        assertTrue(pool.getEndpoints().get(0).isHealthy());
+    }
+
+    @Test
+    public void aHealthCheckThatThrowsCountsAsFailed() {
+        EndpointPool pool = new EndpointPool(Collections.singletonList("http://node-1"),
+                new BasicAWSCredentials("accessKey", "secretKey"), 60000L, url -> {
+                    throw new IllegalStateException("boom");
+                });
+
+        pool.checkHealth();
+
+        assertFalse(pool.getEndpoints().get(0).isHealthy());
+    }
+
+    @Test
+    public void scheduledHealthChecksRun() throws InterruptedException {
+        Set<String> checked = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        EndpointPool pool = new EndpointPool(Collections.singletonList("http://node-1"),
+                new BasicAWSCredentials("accessKey", "secretKey"), 60000L, url -> checked.add(url));
+        try {
+            pool.startHealthChecks(10L);
+            for (int i = 0; i < 100 && checked.isEmpty(); i++) {
+                Thread.sleep(10);
+            }
+            assertTrue(checked.contains("http://node-1"));
+        } finally {
+            pool.stopHealthChecks();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.vinyldns.sample.helper;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void isEmptyBeforeAnythingIsRecorded() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void percentilesAreWithinAQuarterOfTheRealValue() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(10000, histogram.getCount());
+        assertEquals(10000, histogram.getMax());
+        for (double percentile : new double[] {1, 10, 50, 90, 99, 99.9}) {
+            long exact = (long) Math.ceil(10000 * percentile / 100.0);
+            long reported = histogram.getPercentile(percentile);
+            assertTrue(percentile + "th was " + reported, reported >= exact && reported <= exact * 1.25);
+        }
+        assertEquals(10000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(2);
+        histogram.record(3);
+
+        // anything under a millisecond counts as one
+        assertEquals(1, histogram.getPercentile(30));
+        assertEquals(2, histogram.getPercentile(60));
+        assertEquals(3, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void neverReportsMoreThanTheMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+
+        assertEquals(1000, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void countsEveryValueRecordedConcurrently() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                long value = (t + 1) * 100L;
+                results.add(pool.submit(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        histogram.record(value);
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get(5, TimeUnit.SECONDS);
+            }
+
+            assertEquals(80000, histogram.getCount());
+            assertEquals(800, histogram.getMax());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
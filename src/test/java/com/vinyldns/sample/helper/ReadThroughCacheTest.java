@@ -0,0 +1,212 @@
+package com.vinyldns.sample.helper;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReadThroughCacheTest {
+
+    @Test
+    public void loadsOnceAndServesFromTheCache() {
+        ReadThroughCache<String, String> cache = new ReadThroughCache<>(10, v -> ReadThroughCache.FOREVER);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("a1", cache.get("a", () -> "a" + loads.incrementAndGet()));
+        assertEquals("a1", cache.get("a", () -> "a" + loads.incrementAndGet()));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void doesNotCacheValuesWithoutATimeToLive() {
+        ReadThroughCache<String, String> cache = new ReadThroughCache<>(10, v -> v.startsWith("keep") ? 60000L : 0L);
+
+        cache.get("a", () -> "drop");
+        cache.get("b", () -> "keep");
+
+        assertEquals("reloaded", cache.get("a", () -> "reloaded"));
+        assertEquals("keep", cache.get("b", () -> "reloaded"));
+    }
+
+    @Test
+    public void reloadsExpiredValues() throws InterruptedException {
+        ReadThroughCache<String, String> cache = new ReadThroughCache<>(10, v -> 20L);
+
+        cache.get("a", () -> "old");
+        Thread.sleep(50);
+
+        assertEquals("new", cache.get("a", () -> "new"));
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedEntry() {
+        ReadThroughCache<String, String> cache = new ReadThroughCache<>(2, v -> ReadThroughCache.FOREVER);
+
+        cache.get("a", () -> "a");
+        cache.get("b", () -> "b");
+        cache.get("a", () -> "unused");
+        cache.get("c", () -> "c");
+
+        assertEquals(2, cache.size());
+        assertEquals("a", cache.get("a", () -> "reloaded"));
+        assertEquals("reloaded", cache.get("b", () -> "reloaded"));
+    }
+
+    @Test
+    public void invalidateDropsTheEntry() {
+        ReadThroughCache<String, String> cache = new ReadThroughCache<>(10, v -> ReadThroughCache.FOREVER);
+
+        cache.get("a", () -> "old");
+        cache.invalidate("a");
+
+        assertEquals("new", cache.get("a", () -> "new"));
+    }
+
+    @Test
+    public void concurrentLookupsShareOneLoad() throws Exception {
+        ReadThroughCache<String, String> cache = new ReadThroughCache<>(10, v -> ReadThroughCache.FOREVER);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> cache.get("a", () -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    await(release);
+                    return "value";
+                })));
+            }
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            // give the other lookups time to find the load in flight
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("value", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void aFailedLoadIsSeenByWaitersAndNotCached() throws Exception {
+        ReadThroughCache<String, String> cache = new ReadThroughCache<>(10, v -> ReadThroughCache.FOREVER);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> first = pool.submit(() -> cache.get("a", () -> {
+                loading.countDown();
+                await(release);
+                throw new IllegalStateException("boom");
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            AtomicReference<Object> waiterResult = new AtomicReference<>();
+            Thread waiter = new Thread(() -> {
+                try {
+                    waiterResult.set(cache.get("a", () -> "not used while the first load runs"));
+                } catch (IllegalStateException ex) {
+                    waiterResult.set(ex);
+                }
+            });
+            waiter.start();
+            Thread.sleep(100);
+            release.countDown();
+            waiter.join(5000);
+
+            assertTrue(waiterResult.get() instanceof IllegalStateException);
+
+            try {
+                first.get(5, TimeUnit.SECONDS);
+                fail("expected the load to fail");
+            } catch (ExecutionException expected) {
+                assertTrue(expected.getCause() instanceof IllegalStateException);
+            }
+            assertEquals("retried", cache.get("a", () -> "retried"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void aLoadRunningWhenInvalidatedIsNotCached() throws Exception {
+        ReadThroughCache<String, String> cache = new ReadThroughCache<>(10, v -> ReadThroughCache.FOREVER);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> stale = pool.submit(() -> cache.get("a", () -> {
+                loading.countDown();
+                await(release);
+                return "stale";
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            cache.invalidate("a");
+            release.countDown();
+
+            assertEquals("stale", stale.get(5, TimeUnit.SECONDS));
+            assertEquals(0, cache.size());
+            assertEquals("fresh", cache.get("a", () -> "fresh"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void anErrorInTheLoaderReachesTheWaiters() throws Exception {
+        ReadThroughCache<String, String> cache = new ReadThroughCache<>(10, v -> ReadThroughCache.FOREVER);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = pool.submit(() -> cache.get("a", () -> {
+                loading.countDown();
+                await(release);
+                throw new AssertionError("boom");
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<String> waiter = pool.submit(() -> cache.get("a", () -> "not used while the first load runs"));
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> result : Arrays.asList(first, waiter)) {
+                try {
+                    result.get(5, TimeUnit.SECONDS);
+                    fail("expected the load to fail");
+                } catch (ExecutionException expected) {
+                    assertTrue(expected.getCause() instanceof AssertionError);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}